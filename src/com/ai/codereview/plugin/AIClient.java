@@ -1,152 +1,374 @@
 package com.ai.codereview.plugin;
 
-import java.io.*;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.nio.charset.StandardCharsets;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 public class AIClient {
 
     // Set to true while debugging to print more info to console
-    private static final boolean DEBUG = true;
+    private static final boolean DEBUG = false;
 
-    public static String sendReview(String diff) {
-        HttpURLConnection conn = null;
-        final String backend = "http://127.0.0.1:5142/api/review/analyze";
+    // By default orgID=1 for ctpl
+    private static final int ORG_ID = 1;
 
-        try {
-            ReviewConsole.show("Waiting for Response!");
-            URL url = new URL(backend);
-            conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("POST");
-
-            // Timeouts
-            //conn.setConnectTimeout(10_000); // 10s
-            //conn.setReadTimeout(30_000);    // 30s
-            // Headers
-            conn.setRequestProperty("Content-Type", "application/json; charset=UTF-8");
-            conn.setRequestProperty("Accept", "application/json");
-            conn.setDoOutput(true);
-            conn.setDoInput(true);
-
-            // Build JSON payload safely
-            String safeDiff = escapeJson(diff);
-            // By default orgID=1 for ctpl
-            int orgId = 1;
-            String json = "{\"code\":\"" + safeDiff + "\", \"orgId\": " + orgId + "}";
-            // String json = "{\"code\":\"" + safeDiff + "\"}";
-            byte[] payload = json.getBytes(StandardCharsets.UTF_8);
-            conn.setRequestProperty("Content-Length", String.valueOf(payload.length));
+    private static final String RAW_DIFF_TYPE = "text/x-diff; charset=UTF-8";
 
-            if (DEBUG) {
-                System.out.println("=== AIClient sending request ===");
-                System.out.println("URL: " + backend);
-                System.out.println("Headers:");
-                conn.getRequestProperties().forEach((k, v) -> System.out.println(k + ": " + v));
-                System.out.println("Body: " + json);
+    public static ReviewResult sendReview(DiffSource diff) {
+        return sendReview(diff, null, null, null);
+    }
+
+    public static ReviewResult sendReview(DiffSource diff, Consumer<String> onFragment) {
+        return sendReview(diff, null, onFragment, null);
+    }
+
+    /**
+     * Sends the diff for review. When onFragment is given, the review text is
+     * handed to it piece by piece as the backend streams it (SSE or NDJSON);
+     * the result carries the same text in full. Findings the backend
+     * reports are part of that text and, when onFinding is given, also handed
+     * to it as they are parsed (or, on a cache hit, as they were stored). commitId (may be null) is passed along as
+     * metadata when the diff is uploaded raw.
+     */
+    public static ReviewResult sendReview(DiffSource diff, String commitId, Consumer<String> onFragment,
+                                          Consumer<ReviewFinding> onFinding) {
+        // Same normalized diff already reviewed (amend, rebase, cherry-pick...)?
+        ReviewCache.Key key = ReviewCache.keyFor(diff, ORG_ID, PluginSettings.getCompressionThreshold());
+        return sendReview(diff, key, commitId, onFragment, onFinding);
+    }
+
+    private static ReviewResult sendReview(DiffSource diff, ReviewCache.Key key, String commitId,
+                                           Consumer<String> onFragment, Consumer<ReviewFinding> onFinding) {
+        StringBuilder result = new StringBuilder();
+        Consumer<String> sink = fragment -> {
+            result.append(fragment);
+            if (onFragment != null) {
+                onFragment.accept(fragment);
             }
+        };
+        List<ReviewFinding> findings = new ArrayList<>();
+        Consumer<ReviewFinding> findingSink = finding -> {
+            findings.add(finding);
+            if (onFinding != null) {
+                onFinding.accept(finding);
+            }
+        };
+
+        try {
+            int orgId = ORG_ID;
 
-            // Send request
-            try (OutputStream os = conn.getOutputStream()) {
-                os.write(payload);
-                os.flush();
+            String cacheKey = key.getValue();
+            String cached = ReviewCache.get(cacheKey);
+            if (cached != null) {
+                ReviewConsole.show("♻️ Review served from cache.");
+                sink.accept(cached);
+                ReviewCache.getFindings(cacheKey).forEach(findingSink);
+                return new ReviewResult(ReviewResult.Outcome.SUCCESS, 200, cached);
             }
 
-            int responseCode = conn.getResponseCode();
+            ReviewConsole.show("Waiting for Response!");
 
-            // Prefer input stream for success, error stream otherwise; handle null error stream
-            InputStream is = null;
-            if (responseCode >= 200 && responseCode < 300) {
-                is = conn.getInputStream();
-            } else {
-                is = conn.getErrorStream();
-                if (is == null) {
-                    // Sometimes errorStream is null; try inputStream as fallback
-                    try {
-                        is = conn.getInputStream();
-                    } catch (IOException ignored) {
-                        // leave is null and handle later
-                    }
+            // Send request over the shared connection pool (gzipped when large)
+            HttpResponse<InputStream> response = postReview(diff, key, orgId, commitId);
+
+            int responseCode = response.statusCode();
+            String contentType = response.headers().firstValue("Content-Type").orElse("");
+            ReviewResult.Outcome outcome = ReviewResult.outcomeOf(responseCode);
+
+            sink.accept("[AI Review] Response (" + responseCode + "): ");
+            int prefixLength = result.length();
+
+            // Fragments reach the console as soon as the backend emits them
+            try (InputStream body = response.body()) {
+                ReviewStream.read(body, contentType, sink, findingSink);
+            } catch (JsonReader.MalformedJsonException e) {
+                // The backend answered, just not in a form we can read: same again next time
+                sink.accept("\n[AI Review] ❌ Unreadable response: " + e.getMessage());
+                if (outcome == ReviewResult.Outcome.SUCCESS) {
+                    outcome = ReviewResult.Outcome.REJECTED;
                 }
             }
 
-            String responseBody = "";
-            if (is != null) {
-                try (BufferedReader in = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
-                    StringBuilder sb = new StringBuilder();
-                    String line;
-                    while ((line = in.readLine()) != null) {
-                        sb.append(line).append('\n');
-                    }
-                    // trim trailing newline
-                    responseBody = sb.toString().trim();
-                }
-            } else {
-                responseBody = "(no response body available)";
+            if (result.length() == prefixLength) {
+                sink.accept("(no response body available)");
             }
 
             if (DEBUG) {
                 System.out.println("Response code: " + responseCode);
-                System.out.println("Response body: " + responseBody);
+                System.out.println("Response body: " + result.substring(prefixLength));
+            }
+
+            if (outcome == ReviewResult.Outcome.SUCCESS) {
+                String version = response.headers().firstValue("X-Backend-Version").orElse(null);
+                // A new backend version makes cacheKey stale; the next review caches under the new one
+                if (!ReviewCache.noteBackendVersion(version)) {
+                    ReviewCache.put(cacheKey, result.toString(), findings);
+                }
             }
 
-            return "[AI Review] Response (" + responseCode + "): " + responseBody;
+            return new ReviewResult(outcome, responseCode, result.toString());
+
+        } catch (InterruptedException e) {
+            // Superseded or cancelled: keep the interrupt for the caller, cache nothing
+            Thread.currentThread().interrupt();
+            return new ReviewResult(ReviewResult.Outcome.RETRYABLE, 0, "[AI Review] ⏹️ Cancelled");
 
         } catch (Exception e) {
             // log full stacktrace for debugging
             if (DEBUG) {
                 e.printStackTrace();
             }
-            return "[AI Review] ❌ Error: " + e.getClass().getSimpleName() + " - " + e.getMessage();
-        } finally {
-            if (conn != null) {
-                conn.disconnect();
+            // No (complete) response: connection, deadline, breaker open or a body cut off
+            String error = "[AI Review] ❌ Error: " + e.getClass().getSimpleName() + " - " + e.getMessage();
+            if (onFragment != null) {
+                onFragment.accept(result.length() > 0 ? "\n" + error : error);
             }
+            return new ReviewResult(ReviewResult.Outcome.RETRYABLE, 0,
+                    result.length() > 0 ? result + "\n" + error : error);
         }
     }
 
     /**
-     * Escape a string for inclusion as a JSON string value. Handles common
-     * control characters and non-printable chars.
+     * POSTs one diff to the analyze endpoint. When the backend advertises
+     * raw diffs, the diff bytes are the body as-is and the metadata goes in
+     * headers, so nothing is escaped; a 415 switches back to the JSON body
+     * { "code": "...", "orgId": N } for the rest of the session. A diff
+     * the cache key kept is sent from memory instead of being formatted again.
      */
-    private static String escapeJson(String str) {
-        if (str == null) {
-            return "";
+    private static HttpResponse<InputStream> postReview(DiffSource diff, ReviewCache.Key key, int orgId,
+                                                        String commitId) throws IOException, InterruptedException {
+        DiffSource body = key.source(diff);
+
+        if (BackendCapabilities.supports(BackendCapabilities.REVIEW_RAW_DIFF)) {
+            HttpRequest.Builder request = newReviewRequest(RAW_DIFF_TYPE)
+                    .header("X-Org-Id", Integer.toString(orgId));
+            if (commitId != null) {
+                request.header("X-Commit-Id", commitId);
+            }
+            if (diff instanceof ReviewChunk chunk) {
+                request.header("X-Chunk-Index", Integer.toString(chunk.getIndex()));
+            }
+
+            if (DEBUG) {
+                System.out.println("=== AIClient sending request ===");
+                System.out.println("URL: " + BackendEndpoint.REVIEW_ANALYZE.uri());
+                System.out.println("Body: <raw diff>, X-Org-Id: " + orgId + ", X-Commit-Id: " + commitId);
+            }
+
+            HttpResponse<InputStream> response = BackendTransport.post(BackendEndpoint.REVIEW_ANALYZE,
+                    request, body::writeTo, key.getDiffLength());
+            if (response.statusCode() != 415) {
+                return response;
+            }
+            response.body().close();
+            BackendCapabilities.markUnsupported(BackendCapabilities.REVIEW_RAW_DIFF);
         }
-        StringBuilder sb = new StringBuilder(str.length() + 16);
-        for (int i = 0; i < str.length(); i++) {
-            char c = str.charAt(i);
-            switch (c) {
-                case '"':
-                    sb.append("\\\"");
-                    break;
-                case '\\':
-                    sb.append("\\\\");
-                    break;
-                case '\b':
-                    sb.append("\\b");
-                    break;
-                case '\f':
-                    sb.append("\\f");
-                    break;
-                case '\n':
-                    sb.append("\\n");
-                    break;
-                case '\r':
-                    sb.append("\\r");
-                    break;
-                case '\t':
-                    sb.append("\\t");
-                    break;
-                default:
-                    // escape non-printable characters
-                    if (c < 0x20 || c > 0x7E) {
-                        sb.append(String.format("\\u%04x", (int) c));
-                    } else {
-                        sb.append(c);
+
+        if (DEBUG) {
+            System.out.println("=== AIClient sending request ===");
+            System.out.println("URL: " + BackendEndpoint.REVIEW_ANALYZE.uri());
+            System.out.println("Body: {\"code\": <streamed diff>, \"orgId\": " + orgId + "}");
+        }
+
+        // Diff is escaped and encoded while it is being sent (chunked body)
+        return BackendTransport.post(BackendEndpoint.REVIEW_ANALYZE,
+                newReviewRequest("application/json; charset=UTF-8"),
+                StreamingBody.json(json -> json.beginObject()
+                        .name("code").value(body)
+                        .name("orgId").value(orgId)
+                        .endObject()),
+                key.getDiffLength());
+    }
+
+    private static HttpRequest.Builder newReviewRequest(String contentType) {
+        return BackendTransport.newRequest(BackendEndpoint.REVIEW_ANALYZE)
+                .header("Content-Type", contentType)
+                .setHeader("Accept", "text/event-stream, application/x-ndjson, application/json");
+    }
+
+    /**
+     * Reviews many diffs with one request to the batch endpoint when the
+     * backend advertises it; otherwise (or if the batch call is rejected)
+     * each diff is sent on its own. Results are indexed like the items and
+     * formatted like sendReview's. Cached results are never resent.
+     * commitIds (may be null) holds the commit of each item, as sendReview's commitId.
+     * onFinding (may be null) receives each finding with its item index.
+     */
+    public static ReviewResult[] reviewBatch(List<? extends DiffSource> items, List<String> commitIds,
+                                             BiConsumer<Integer, ReviewFinding> onFinding) throws InterruptedException {
+        ReviewResult[] results = new ReviewResult[items.size()];
+        ReviewCache.Key[] keys = new ReviewCache.Key[items.size()];
+        List<Integer> pending = new ArrayList<>();
+
+        for (int i = 0; i < items.size(); i++) {
+            keys[i] = ReviewCache.keyFor(items.get(i), ORG_ID, PluginSettings.getCompressionThreshold());
+            String cached = ReviewCache.get(keys[i].getValue());
+            if (cached != null) {
+                results[i] = new ReviewResult(ReviewResult.Outcome.SUCCESS, 200, cached);
+                if (onFinding != null) {
+                    int index = i;
+                    ReviewCache.getFindings(keys[i].getValue()).forEach(finding -> onFinding.accept(index, finding));
+                }
+            } else {
+                pending.add(i);
+            }
+        }
+        if (pending.size() < items.size()) {
+            ReviewConsole.show("♻️ " + (items.size() - pending.size()) + " of " + items.size()
+                    + " reviews served from cache.");
+        }
+
+        if (pending.size() > 1 && BackendCapabilities.supports(BackendCapabilities.REVIEW_BATCH)) {
+            try {
+                sendBatch(items, commitIds, pending, keys, results, onFinding);
+            } catch (IOException e) {
+                if (DEBUG) {
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        for (int i : pending) {
+            if (results[i] == null) {
+                int index = i;
+                results[i] = sendReview(items.get(i), keys[i], commitIds == null ? null : commitIds.get(i), null,
+                        onFinding == null ? null : finding -> onFinding.accept(index, finding));
+            }
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+        return results;
+    }
+
+    /**
+     * One NDJSON request: {"id":"3","code":"...","orgId":1,"commitId":"..."} per line. The
+     * response is NDJSON as well; each line carries an "id" and a piece of
+     * that item's review text, optionally a "status" or an "error".
+     */
+    private static void sendBatch(List<? extends DiffSource> items, List<String> commitIds, List<Integer> pending,
+                                  ReviewCache.Key[] keys, ReviewResult[] results,
+                                  BiConsumer<Integer, ReviewFinding> onFinding) throws IOException, InterruptedException {
+        HttpRequest.Builder request = BackendTransport.newRequest(BackendEndpoint.REVIEW_BATCH)
+                .header("Content-Type", "application/x-ndjson; charset=UTF-8")
+                .setHeader("Accept", "application/x-ndjson");
+
+        long minLength = 0;
+        for (int i : pending) {
+            minLength = keys[i].getDiffLength() < 0 || minLength < 0 ? -1 : minLength + keys[i].getDiffLength();
+        }
+
+        HttpResponse<InputStream> response = BackendTransport.post(BackendEndpoint.REVIEW_BATCH, request,
+                StreamingBody.json(json -> {
+                    for (int i : pending) {
+                        json.beginObject()
+                            .name("id").value(Integer.toString(i))
+                            .name("code").value(keys[i].source(items.get(i)))
+                            .name("orgId").value(ORG_ID);
+                        if (commitIds != null && commitIds.get(i) != null) {
+                            json.name("commitId").value(commitIds.get(i));
+                        }
+                        json.endObject().newline();
                     }
+                }), minLength);
+
+        int status = response.statusCode();
+        if (status == 404 || status == 405 || status == 501) {
+            response.body().close();
+            BackendCapabilities.markUnsupported(BackendCapabilities.REVIEW_BATCH);
+            return;
+        }
+        if (status < 200 || status >= 300) {
+            ReviewResult error = new ReviewResult(ReviewResult.outcomeOf(status), status,
+                    "[AI Review] Response (" + status + "): " + BackendTransport.readBody(response));
+            pending.forEach(i -> results[i] = error);
+            return;
+        }
+
+        Map<Integer, StringBuilder> texts = new HashMap<>();
+        Map<Integer, List<ReviewFinding>> findings = new HashMap<>();
+        Map<Integer, Long> statuses = new HashMap<>();
+        try (InputStream body = response.body()) {
+            JsonReader json = new JsonReader(body);
+            while (json.peek() != JsonReader.Token.END_DOCUMENT) {
+                if (json.peek() != JsonReader.Token.BEGIN_OBJECT) {
+                    json.skipValue();
+                    continue;
+                }
+                BatchLine line = new BatchLine();
+                ReviewStream.readEvent(json, line.text::append, line.findings::add, line::read);
+
+                Integer index = line.index();
+                if (index == null || !pending.contains(index)) {
+                    continue;
+                }
+                texts.computeIfAbsent(index, k -> new StringBuilder()).append(line.error != null ? line.error : line.text);
+                findings.computeIfAbsent(index, k -> new ArrayList<>()).addAll(line.findings);
+                if (onFinding != null) {
+                    line.findings.forEach(finding -> onFinding.accept(index, finding));
+                }
+                if (line.status != null) {
+                    statuses.put(index, line.status);
+                } else if (line.error != null) {
+                    statuses.putIfAbsent(index, 500L);
+                }
+            }
+        }
+
+        boolean keysStale = ReviewCache.noteBackendVersion(response.headers().firstValue("X-Backend-Version").orElse(null));
+        for (Map.Entry<Integer, StringBuilder> e : texts.entrySet()) {
+            int index = e.getKey();
+            int itemStatus = statuses.getOrDefault(index, 200L).intValue();
+            String body = e.getValue().length() > 0 ? e.getValue().toString() : "(no response body available)";
+            results[index] = new ReviewResult(ReviewResult.outcomeOf(itemStatus), itemStatus,
+                    "[AI Review] Response (" + itemStatus + "): " + body);
+            if (results[index].isSuccess() && !keysStale) {
+                ReviewCache.put(keys[index].getValue(), results[index].getText(), findings.getOrDefault(index, List.of()));
+            }
+        }
+        // Items the server skipped stay null and are retried one by one
+    }
+
+    /** The fields of one batch response line. */
+    private static class BatchLine {
+        final StringBuilder text = new StringBuilder();
+        final List<ReviewFinding> findings = new ArrayList<>();
+        String id;
+        String error;
+        Long status;
+
+        boolean read(String name, JsonReader json) throws IOException {
+            if (json.peek() == JsonReader.Token.NULL) {
+                return false;
+            }
+            switch (name) {
+                case "id":
+                    id = json.nextString();
+                    return true;
+                case "error":
+                    error = json.nextString();
+                    return true;
+                case "status":
+                    status = json.nextLong();
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
+        /** Item index from the id, or null if it is not one of ours. */
+        Integer index() {
+            if (id == null || id.isEmpty() || id.length() > 9 || !id.chars().allMatch(Character::isDigit)) {
+                return null;
             }
+            return Integer.parseInt(id);
         }
-        return sb.toString();
     }
 }
@@ -1,26 +1,59 @@
 package com.ai.codereview.plugin;
 
+import java.util.List;
+import java.util.function.Consumer;
+
 import org.eclipse.swt.SWT;
+import org.eclipse.swt.dnd.Clipboard;
+import org.eclipse.swt.dnd.TextTransfer;
+import org.eclipse.swt.dnd.Transfer;
 import org.eclipse.swt.graphics.Color;
 import org.eclipse.swt.graphics.Font;
+import org.eclipse.swt.graphics.GC;
 import org.eclipse.swt.graphics.Resource;
 import org.eclipse.swt.layout.*;
 import org.eclipse.swt.widgets.*;
 import org.eclipse.jface.dialogs.MessageDialog;
 import org.eclipse.ui.part.ViewPart;
 
+/**
+ * AIReviewPanel
+ * -------------
+ * Login/test actions plus the review history.
+ * The history is an SWT.VIRTUAL table over ReviewLog: only visible rows
+ * are materialized, paged in from the log a block at a time.
+ */
 public class AIReviewPanel extends ViewPart {
 
     public static final String ID = "com.ai.codereview.plugin.aiReviewPanel";
 
-    private Text outputBox;
-    private Button loginBtn, logoutBtn, clearBtn, generateTCBtn, validateTCBtn, pushTCBtn;
+    private static final int PAGE_LINES = 256;
+    private static final String PLACEHOLDER = "Waiting for commits or actions...";
+
+    private Table outputBox;
+    private TableColumn outputColumn;
+    private Label backendStatus;
+    private final Consumer<CircuitBreaker.State> breakerListener = state ->
+            Display.getDefault().asyncExec(() -> showBackendState(state));
+
+    // ReviewLog line shown in row 0, and the last page read from the log
+    private long firstLine;
+    private long pageStart = -1;
+    private List<String> page = List.of();
+    private Button loginBtn, logoutBtn, clearBtn, generateTCBtn, validateTCBtn, pushTCBtn, cancelBtn;
     private String lastGeneratedTestCase = null;
 
+    // Test action running in the background; one at a time (UI thread only)
+    private BackendJob<?> running;
+
     // Theme resources (disposed in dispose())
     private Color bgDark, bgCard, textColor, btnBlue, btnRed, btnGray;
     private Font titleFont, outputFont;
 
+    // Measures row widths; created once with outputFont, disposed in dispose()
+    private GC measureGC;
+    private int averageCharWidth;
+
     @Override
     public void createPartControl(Composite parent) {
         try {
@@ -48,6 +81,14 @@ public class AIReviewPanel extends ViewPart {
             title.setBackground(bgCard);
             title.setFont(titleFont);
 
+            // BACKEND STATUS (circuit breaker)
+            backendStatus = new Label(card, SWT.NONE);
+            backendStatus.setForeground(textColor);
+            backendStatus.setBackground(bgCard);
+            backendStatus.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false));
+            showBackendState(CircuitBreaker.getState());
+            CircuitBreaker.addListener(breakerListener);
+
             // BUTTON BAR
             Composite btnBar = new Composite(card, SWT.NONE);
             btnBar.setBackground(bgCard);
@@ -68,7 +109,7 @@ public class AIReviewPanel extends ViewPart {
                 AuthManager.clearToken();
                 ReviewConsole.clearHistory();
                 ReviewConsole.clearConsoleView();
-                outputBox.setText("");
+                refreshLogHistory();
                 MessageDialog.openInformation(parent.getShell(), "Logout", "🔓 Logged Out Successfully!");
                 refreshAfterLogin();
             });
@@ -78,58 +119,94 @@ public class AIReviewPanel extends ViewPart {
             clearBtn = createButton(btnBar, "Clear Logs", btnGray, e -> {
                 ReviewConsole.clearHistory();
                 ReviewConsole.clearConsoleView();
-                outputBox.setText("");
+                refreshLogHistory();
                 MessageDialog.openInformation(parent.getShell(), "Logs Cleared", "🧹 All logs cleared successfully.");
             });
 
             // GENERATE TEST
             generateTCBtn = createButton(btnBar, "Generate Test", btnBlue, e -> {
-                String diff = GitDiffProvider.getLastDiff();
-                if (diff == null || diff.trim().isEmpty()) {
+                DiffSource diff = GitDiffProvider.getLastDiff();
+                if (diff == null) {
                     MessageDialog.openError(parent.getShell(), "Error", "❌ No git diff found. Commit first!");
                     return;
                 }
                 ReviewConsole.show("🧪 Generating test case...");
-                lastGeneratedTestCase = TestClient.generateTestCaseFromDiff(diff);
-
-                if (lastGeneratedTestCase == null) {
-                    ReviewConsole.show("❌ Failed to generate test case.");
-                } else {
-                    ReviewConsole.show("🧪 Test Generated:\n" + lastGeneratedTestCase);
-                    validateTCBtn.setVisible(true);
-                    pushTCBtn.setVisible(false);
-                }
-                btnBar.layout(true, true);
+                runInBackground(btnBar, "Generating test case", monitor -> {
+                    monitor.subTask("Waiting for the backend...");
+                    return TestClient.generateTestCaseFromDiff(diff);
+                }, testCase -> {
+                    lastGeneratedTestCase = testCase;
+
+                    if (lastGeneratedTestCase == null) {
+                        ReviewConsole.show("❌ Failed to generate test case.");
+                    } else {
+                        ReviewConsole.show("🧪 Test Generated:\n" + lastGeneratedTestCase);
+                        validateTCBtn.setVisible(true);
+                        pushTCBtn.setVisible(false);
+                    }
+                    btnBar.layout(true, true);
+                });
             });
 
             // VALIDATE TEST
             validateTCBtn = createButton(btnBar, "Validate Test", btnBlue, e -> {
-                if (TestClient.validateTestCase(lastGeneratedTestCase)) {
-                    ReviewConsole.show("✅ Test case validated!");
-                    pushTCBtn.setVisible(true);
-                } else {
-                    MessageDialog.openError(parent.getShell(), "Validation Failed", "❌ Test case invalid.");
-                }
-                btnBar.layout(true, true);
+                String testCase = lastGeneratedTestCase;
+                runInBackground(btnBar, "Validating test case", monitor -> {
+                    monitor.subTask("Waiting for the backend...");
+                    return TestClient.validate(testCase);
+                }, result -> {
+                    if (result.isPassed()) {
+                        ReviewConsole.show("✅ Test case validated!");
+                        pushTCBtn.setVisible(true);
+                    } else {
+                        String reason = result.getReason();
+                        MessageDialog.openError(parent.getShell(), "Validation Failed",
+                                reason.isEmpty() ? "❌ Test case invalid." : "❌ Test case invalid: " + reason);
+                    }
+                    btnBar.layout(true, true);
+                });
             });
             validateTCBtn.setVisible(false);
 
             // PUSH TEST
             pushTCBtn = createButton(btnBar, "Push Test", btnBlue, e -> {
-                if (TestFileWriter.pushTestCase(lastGeneratedTestCase)) {
-                    MessageDialog.openInformation(parent.getShell(), "Success", "📁 Test saved to /test folder.");
-                } else {
-                    MessageDialog.openError(parent.getShell(), "Error", "❌ Failed to save test case.");
-                }
+                String testCase = lastGeneratedTestCase;
+                runInBackground(btnBar, "Saving test case",
+                        monitor -> TestFileWriter.pushTestCase(testCase), saved -> {
+                    if (saved) {
+                        MessageDialog.openInformation(parent.getShell(), "Success", "📁 Test saved to /test folder.");
+                    } else {
+                        MessageDialog.openError(parent.getShell(), "Error", "❌ Failed to save test case.");
+                    }
+                });
             });
             pushTCBtn.setVisible(false);
 
-            // OUTPUT BOX
-            outputBox = new Text(card, SWT.MULTI | SWT.V_SCROLL | SWT.H_SCROLL | SWT.BORDER | SWT.READ_ONLY);
+            // CANCEL (only while a test action runs)
+            cancelBtn = createButton(btnBar, "Cancel", btnRed, e -> {
+                if (running != null) {
+                    running.cancel();
+                    ReviewConsole.show("⏹️ " + running.getName() + " cancelled.");
+                }
+            });
+            cancelBtn.setVisible(false);
+
+            // OUTPUT BOX (virtual: rows are filled from ReviewLog when they become visible)
+            outputBox = new Table(card, SWT.VIRTUAL | SWT.MULTI | SWT.FULL_SELECTION
+                    | SWT.V_SCROLL | SWT.H_SCROLL | SWT.BORDER);
             outputBox.setBackground(bgDark);
             outputBox.setForeground(textColor);
             outputBox.setFont(outputFont);
             outputBox.setLayoutData(new GridData(SWT.FILL, SWT.FILL, true, true));
+            outputColumn = new TableColumn(outputBox, SWT.LEFT);
+            outputBox.addListener(SWT.SetData, e -> fillRow((TableItem) e.item, e.index));
+            outputBox.addListener(SWT.Resize, e -> outputColumn.setWidth(
+                    Math.max(outputColumn.getWidth(), outputBox.getClientArea().width)));
+            outputBox.addListener(SWT.KeyDown, e -> {
+                if ((e.stateMask & SWT.MOD1) != 0 && (e.keyCode == 'c' || e.keyCode == 'C')) {
+                    copySelection();
+                }
+            });
 
             // Initialize UI
             refreshAfterLogin();
@@ -140,6 +217,41 @@ public class AIReviewPanel extends ViewPart {
         }
     }
 
+    /**
+     * Runs a test action as a BackendJob so the UI stays responsive. While it
+     * runs the test buttons are disabled and Cancel is shown; onDone gets the
+     * result on the UI thread.
+     */
+    private <T> void runInBackground(Composite btnBar, String name, BackendJob.Action<T> action,
+                                     Consumer<T> onDone) {
+        if (running != null) {
+            return;
+        }
+        BackendJob<T> job = new BackendJob<>(name, action, result -> {
+            if (!btnBar.isDisposed()) {
+                onDone.accept(result);
+            }
+        });
+        job.whenFinished(() -> {
+            running = null;
+            if (!btnBar.isDisposed()) {
+                setBusy(false);
+                btnBar.layout(true, true);
+            }
+        });
+        running = job;
+        setBusy(true);
+        btnBar.layout(true, true);
+        job.schedule();
+    }
+
+    private void setBusy(boolean busy) {
+        generateTCBtn.setEnabled(!busy);
+        validateTCBtn.setEnabled(!busy);
+        pushTCBtn.setEnabled(!busy);
+        cancelBtn.setVisible(busy);
+    }
+
     // Create button with style
     private Button createButton(Composite parent, String text, Color bg, Listener listener) {
         Button btn = new Button(parent, SWT.PUSH);
@@ -164,22 +276,101 @@ public class AIReviewPanel extends ViewPart {
         });
     }
 
+    /** Re-reads the row count from ReviewLog and repaints everything. */
     private void refreshLogHistory() {
         if (outputBox != null && !outputBox.isDisposed()) {
-            String history = ReviewConsole.getLogHistory();
-            outputBox.setText((history == null || history.isBlank())
-                    ? "Waiting for commits or actions..."
-                    : history);
+            firstLine = ReviewLog.getFirstLine();
+            pageStart = -1;
+            outputBox.setItemCount((int) Math.max(1, ReviewLog.getLineCount() - firstLine));
+            outputBox.clearAll();
+            scrollToEnd();
         }
     }
 
-    public void addMessage(String msg) {
-        Display.getDefault().asyncExec(() -> {
-            if (outputBox != null && !outputBox.isDisposed()) {
-                outputBox.append(msg + "\n");
-                outputBox.setTopIndex(outputBox.getLineCount() - 1);
+    /** New console text was logged; called by ReviewConsole on the UI thread. */
+    public void append(String text) {
+        if (outputBox == null || outputBox.isDisposed()) {
+            return;
+        }
+        long newFirstLine = ReviewLog.getFirstLine();
+        if (newFirstLine != firstLine) {
+            long shift = newFirstLine - firstLine;
+            if (shift < 0 || shift >= outputBox.getItemCount()) {
+                refreshLogHistory(); // cleared, or everything shown was evicted
+                return;
             }
-        });
+            // Old lines were evicted: drop their rows; the rest move up with their text
+            outputBox.remove(0, (int) shift - 1);
+            firstLine = newFirstLine;
+        }
+        int oldCount = outputBox.getItemCount();
+        int newCount = (int) Math.max(1, ReviewLog.getLineCount() - firstLine);
+        pageStart = -1;
+        outputBox.setItemCount(newCount);
+        // The previous last row may have been the placeholder or an open line that grew
+        outputBox.clear(oldCount - 1);
+        scrollToEnd();
+    }
+
+    private void fillRow(TableItem item, int row) {
+        long line = firstLine + row;
+        if (line < pageStart || line >= pageStart + page.size()) {
+            pageStart = Math.max(firstLine, line - PAGE_LINES / 2);
+            page = ReviewLog.read(pageStart, PAGE_LINES);
+        }
+        int offset = (int) (line - pageStart);
+        String text = offset >= 0 && offset < page.size() ? page.get(offset) : "";
+        item.setText(ReviewLog.getLineCount() == 0 ? PLACEHOLDER : text);
+
+        // Grow the column for long lines so they can be scrolled to
+        if (measureGC == null) {
+            measureGC = new GC(outputBox);
+            measureGC.setFont(outputFont);
+            averageCharWidth = (int) Math.ceil(measureGC.getFontMetrics().getAverageCharacterWidth());
+        }
+        if (text.length() * averageCharWidth * 2 < outputColumn.getWidth()) {
+            return; // clearly fits, even in wide characters
+        }
+        int width = measureGC.textExtent(text).x + 16;
+        if (width > outputColumn.getWidth()) {
+            outputColumn.setWidth(width);
+        }
+    }
+
+    private void scrollToEnd() {
+        outputBox.setTopIndex(outputBox.getItemCount() - 1);
+    }
+
+    private void copySelection() {
+        StringBuilder text = new StringBuilder();
+        for (TableItem item : outputBox.getSelection()) {
+            text.append(item.getText()).append(System.lineSeparator());
+        }
+        if (text.length() == 0) {
+            return;
+        }
+        Clipboard clipboard = new Clipboard(outputBox.getDisplay());
+        try {
+            clipboard.setContents(new Object[]{text.toString()}, new Transfer[]{TextTransfer.getInstance()});
+        } finally {
+            clipboard.dispose();
+        }
+    }
+
+    private void showBackendState(CircuitBreaker.State state) {
+        if (backendStatus == null || backendStatus.isDisposed()) {
+            return;
+        }
+        switch (state) {
+            case OPEN:
+                backendStatus.setText("🔴 Backend unreachable — requests fail fast until it is back");
+                break;
+            case HALF_OPEN:
+                backendStatus.setText("🟡 Backend reconnecting...");
+                break;
+            default:
+                backendStatus.setText("🟢 Backend online");
+        }
     }
 
     @Override
@@ -203,12 +394,17 @@ public class AIReviewPanel extends ViewPart {
 
     @Override
     public void dispose() {
+        CircuitBreaker.removeListener(breakerListener);
+        if (running != null) {
+            running.cancel();
+        }
         disposeSafely(bgDark);
         disposeSafely(bgCard);
         disposeSafely(textColor);
         disposeSafely(btnBlue);
         disposeSafely(btnRed);
         disposeSafely(btnGray);
+        disposeSafely(measureGC);
         disposeSafely(outputFont);
         disposeSafely(titleFont);
 
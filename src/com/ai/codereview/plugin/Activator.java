@@ -27,13 +27,16 @@ public class Activator extends AbstractUIPlugin {
         ReviewConsole.show("🚀 CTPL Code Review Plugin started.");
         ReviewConsole.show("👉 Please login using the Login button inside the AI Review Panel.");
 
+        // 🔌 Open the shared backend connection before the first commit needs it
+        BackendTransport.warmUp();
+
         // 🟡 Ensure UI is ready before starting watchers
         Display.getDefault().asyncExec(() -> {
             try {
                 GitChangeListener.initialize(); // 🔹 Correct method
                 ReviewConsole.show("🟢 Git listener initialized successfully!");
                 ReviewConsole.show("📡 Waiting for commits...");
-                ReviewConsole.show("📌 If repository not detected, select project in Package Explorer.");
+                ReviewConsole.show("📌 All Git repositories of open workspace projects are watched.");
             } catch (Exception e) {
                 ReviewConsole.show("❌ Failed to initialize Git watcher: " + e.getMessage());
             }
@@ -47,6 +50,9 @@ public class Activator extends AbstractUIPlugin {
 
         // 🔹 Stop all watchers safely
         GitChangeListener.stopAll();
+        RepositoryPool.closeAll();
+        AuthManager.shutdown();
+        BackendTransport.shutdown();
 
         plugin = null;
         super.stop(context);
@@ -1,32 +1,46 @@
 package com.ai.codereview.plugin;
 
-import java.io.*;
-import java.net.*;
-import java.nio.charset.StandardCharsets;
+import java.io.InputStream;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
 
 public class AuthClient {
 
     public static String login(String email, String password) {
         try {
-            URL url = new URL("http://localhost:5142/api/auth/login"); // <-- UPDATE THIS
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+            HttpRequest.Builder request = BackendTransport.newRequest(BackendEndpoint.AUTH_LOGIN)
+                    .header("Content-Type", "application/json");
+
+            HttpResponse<InputStream> response = BackendTransport.post(BackendEndpoint.AUTH_LOGIN,
+                    request, StreamingBody.json(json -> json.beginObject()
+                            .name("email").value(email)
+                            .name("password").value(password)
+                            .endObject()));
+
+            String body = BackendTransport.readBody(response);
+            if (response.statusCode() == 200) {
+                return body.lines().findFirst().orElse(null);
+            }
 
-            conn.setRequestMethod("POST");
-            conn.setRequestProperty("Content-Type", "application/json");
-            conn.setDoOutput(true);
+            return null;
 
-            String json = "{\"email\":\"" + email + "\",\"password\":\"" + password + "\"}";
+        } catch (Exception e) {
+            return null;
+        }
+    }
 
-            try (OutputStream os = conn.getOutputStream()) {
-                os.write(json.getBytes(StandardCharsets.UTF_8));
-            }
+    /** Exchanges a still-valid token for a new one; null if the backend refuses. */
+    public static String refresh(String token) {
+        try {
+            HttpRequest.Builder request = BackendTransport.newRequest(BackendEndpoint.AUTH_REFRESH)
+                    .header("Authorization", "Bearer " + token)
+                    .POST(HttpRequest.BodyPublishers.noBody());
+
+            HttpResponse<InputStream> response = BackendTransport.send(BackendEndpoint.AUTH_REFRESH, request);
 
-            if (conn.getResponseCode() == 200) {
-                BufferedReader br = new BufferedReader(
-                        new InputStreamReader(conn.getInputStream()));
-                String token = br.readLine();
-                br.close();
-                return token;
+            String body = BackendTransport.readBody(response);
+            if (response.statusCode() == 200) {
+                return body.lines().findFirst().orElse(null);
             }
 
             return null;
@@ -1,22 +1,61 @@
 package com.ai.codereview.plugin;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.eclipse.core.runtime.preferences.IEclipsePreferences;
 import org.eclipse.core.runtime.preferences.InstanceScope;
-import org.osgi.service.prefs.Preferences;
 
+/**
+ * AuthManager
+ * -----------
+ * Holds the login token in memory; the preference store is only read once.
+ * - A preference change listener keeps the cache in sync with any writer
+ * - A JWT's "exp" claim makes the token expire locally, without a failed request
+ * - The token is refreshed in the background shortly before it expires
+ *
+ * Tokens that are not JWTs never expire locally (the old behavior).
+ */
 public class AuthManager {
 
     private static final String NODE = "com.ai.codereview.plugin";
     private static final String KEY_TOKEN = "auth_token";
 
-    public static void saveToken(String token) {
-        Preferences prefs = InstanceScope.INSTANCE.getNode(NODE);
-        prefs.put(KEY_TOKEN, token);
+    /** Refresh this long before expiry (or at half the lifetime, if shorter). */
+    private static final Duration REFRESH_MARGIN = Duration.ofMinutes(5);
+    private static final Duration RETRY_DELAY = Duration.ofSeconds(30);
+
+    private static final Pattern EXP_CLAIM = Pattern.compile("\"exp\"\\s*:\\s*(\\d+)");
+
+    private static volatile boolean loaded;
+    private static volatile String token;
+    private static volatile Instant expiresAt;
+
+    private static ScheduledExecutorService refresher;
+    private static ScheduledFuture<?> pendingRefresh;
+
+    public static void saveToken(String newToken) {
+        IEclipsePreferences prefs = prefs();
+        prefs.put(KEY_TOKEN, newToken);
         try { prefs.flush(); } catch (Exception ignored) {}
+        cache(newToken); // the listener does the same; don't wait for it
     }
 
     public static String getToken() {
-        Preferences prefs = InstanceScope.INSTANCE.getNode(NODE);
-        return prefs.get(KEY_TOKEN, null);
+        ensureLoaded();
+        Instant exp = expiresAt;
+        if (exp != null && !Instant.now().isBefore(exp)) {
+            return null; // expired: same as logged out
+        }
+        return token;
     }
 
     public static boolean isLoggedIn() {
@@ -24,8 +63,123 @@ public class AuthManager {
     }
 
     public static void clearToken() {
-        Preferences prefs = InstanceScope.INSTANCE.getNode(NODE);
+        IEclipsePreferences prefs = prefs();
         prefs.remove(KEY_TOKEN);
         try { prefs.flush(); } catch (Exception ignored) {}
+        cache(null);
+    }
+
+    /** Called from Activator.stop(). */
+    public static synchronized void shutdown() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+            refresher = null;
+        }
+        pendingRefresh = null;
+    }
+
+    // ----------------------------- CACHE -----------------------------
+
+    private static void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        synchronized (AuthManager.class) {
+            if (loaded) {
+                return;
+            }
+            IEclipsePreferences prefs = prefs();
+            prefs.addPreferenceChangeListener(event -> {
+                if (KEY_TOKEN.equals(event.getKey())) {
+                    Object value = event.getNewValue();
+                    cache(value instanceof String ? (String) value : null);
+                }
+            });
+            cache(prefs.get(KEY_TOKEN, null));
+            loaded = true; // only here: saveToken()/clearToken() may cache before the listener exists
+        }
+    }
+
+    private static synchronized void cache(String newToken) {
+        if (newToken != null && newToken.equals(token)) {
+            return;
+        }
+        token = newToken;
+        expiresAt = newToken == null ? null : expiryOf(newToken);
+        scheduleRefresh();
+    }
+
+    /** The "exp" claim of a JWT, or null if the token is not a JWT or has no expiry. */
+    static Instant expiryOf(String jwt) {
+        String[] parts = jwt.split("\\.");
+        if (parts.length != 3) {
+            return null;
+        }
+        try {
+            String payload = new String(Base64.getUrlDecoder().decode(parts[1]), StandardCharsets.UTF_8);
+            Matcher m = EXP_CLAIM.matcher(payload);
+            return m.find() ? Instant.ofEpochSecond(Long.parseLong(m.group(1))) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // ----------------------------- REFRESH -----------------------------
+
+    private static synchronized void scheduleRefresh() {
+        if (pendingRefresh != null) {
+            pendingRefresh.cancel(false);
+            pendingRefresh = null;
+        }
+        if (token == null || expiresAt == null) {
+            return;
+        }
+
+        Duration lifetime = Duration.between(Instant.now(), expiresAt);
+        if (lifetime.isNegative()) {
+            return;
+        }
+        Duration margin = lifetime.dividedBy(2).compareTo(REFRESH_MARGIN) < 0 ? lifetime.dividedBy(2) : REFRESH_MARGIN;
+        schedule(lifetime.minus(margin));
+    }
+
+    private static synchronized void schedule(Duration delay) {
+        if (refresher == null) {
+            refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "ai-auth-refresh");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        pendingRefresh = refresher.schedule(AuthManager::refresh, delay.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private static void refresh() {
+        String current = token;
+        Instant exp = expiresAt;
+        if (current == null || exp == null) {
+            return;
+        }
+
+        String fresh = AuthClient.refresh(current);
+        if (fresh != null) {
+            saveToken(fresh);
+            ReviewConsole.show("🔑 Auth token refreshed.");
+            return;
+        }
+
+        if (Instant.now().plus(RETRY_DELAY).isBefore(exp)) {
+            synchronized (AuthManager.class) {
+                if (current.equals(token)) {
+                    schedule(RETRY_DELAY);
+                }
+            }
+        } else {
+            ReviewConsole.show("🔒 Session expired — please login again.");
+        }
+    }
+
+    private static IEclipsePreferences prefs() {
+        return InstanceScope.INSTANCE.getNode(NODE);
     }
 }
@@ -0,0 +1,104 @@
+package com.ai.codereview.plugin;
+
+import java.io.InputStream;
+import java.net.http.HttpResponse;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * BackendCapabilities
+ * -------------------
+ * Optional features the backend advertises at GET /api/capabilities:
+ * { "features": ["review.batch", ...] }
+ * - Probed once, on first use; a backend without the route has no features
+ * - Forgotten when the circuit breaker opens (the backend may come back upgraded)
+ * - A feature that fails at runtime can be switched off for the session
+ */
+public class BackendCapabilities {
+
+    /** NDJSON batch reviews at /api/review/batch. */
+    public static final String REVIEW_BATCH = "review.batch";
+
+    /** /api/review/analyze accepts the diff as a raw text/x-diff body. */
+    public static final String REVIEW_RAW_DIFF = "review.raw-diff";
+
+    /** /api/test/generate accepts the diff as a raw text/x-diff body. */
+    public static final String TEST_RAW_DIFF = "test.raw-diff";
+
+    // Set to true while debugging to print more info to console
+    private static final boolean DEBUG = false;
+
+    private static final Pattern FEATURES = Pattern.compile("\"features\"\\s*:\\s*\\[([^\\]]*)\\]");
+    private static final Pattern STRING = Pattern.compile("\"([^\"]*)\"");
+
+    // null until probed. Never touched under a lock: probing goes through the
+    // circuit breaker, whose listener calls reset()
+    private static final AtomicReference<Set<String>> features = new AtomicReference<>();
+
+    static {
+        CircuitBreaker.addListener(state -> {
+            if (state == CircuitBreaker.State.OPEN) {
+                reset();
+            }
+        });
+    }
+
+    public static boolean supports(String feature) {
+        Set<String> known = features.get();
+        if (known == null) {
+            Set<String> probed = probe();
+            if (probed == null) {
+                return false;
+            }
+            // Concurrent first callers may both probe; the first answer wins
+            features.compareAndSet(null, probed);
+            known = probed;
+        }
+        return known.contains(feature);
+    }
+
+    /** The backend advertised the feature but rejected its use. */
+    public static void markUnsupported(String feature) {
+        Set<String> known = features.get();
+        if (known != null && known.remove(feature)) {
+            ReviewConsole.show("⚠️ Backend feature " + feature + " disabled for this session.");
+        }
+    }
+
+    public static void reset() {
+        features.set(null);
+    }
+
+    /** Advertised features, an empty set if there are none, or null if the backend could not be asked. */
+    private static Set<String> probe() {
+        try {
+            HttpResponse<InputStream> response = BackendTransport.send(BackendEndpoint.CAPABILITIES,
+                    BackendTransport.newRequest(BackendEndpoint.CAPABILITIES).GET());
+            String body = BackendTransport.readBody(response);
+
+            Set<String> found = ConcurrentHashMap.newKeySet();
+            if (response.statusCode() == 200) {
+                Matcher list = FEATURES.matcher(body);
+                if (list.find()) {
+                    Matcher item = STRING.matcher(list.group(1));
+                    while (item.find()) {
+                        found.add(item.group(1));
+                    }
+                }
+            }
+            if (DEBUG) {
+                System.out.println("🔎 Backend features: " + (found.isEmpty() ? "none" : found));
+            }
+            return found;
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (Exception e) {
+            return null; // unreachable: ask again next time
+        }
+    }
+}
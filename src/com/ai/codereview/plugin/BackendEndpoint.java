@@ -0,0 +1,65 @@
+package com.ai.codereview.plugin;
+
+import java.net.URI;
+import java.time.Duration;
+
+/**
+ * BackendEndpoint
+ * ---------------
+ * Every backend route the plugin talks to.
+ * All of them resolve against the same host so they share one connection pool.
+ *
+ * Each route has a deadline for the whole call (attempts, backoff and
+ * response body) and says whether failed calls may be retried. Calls that
+ * never reached the backend (connect failures) are retried on every route.
+ */
+public enum BackendEndpoint {
+
+    // Not retried: each attempt is a paid, minutes-long generation the backend may have started
+    REVIEW_ANALYZE("/api/review/analyze", Duration.ofMinutes(3), false),
+    REVIEW_BATCH("/api/review/batch", Duration.ofMinutes(10), false),
+    TEST_GENERATE("/api/test/generate", Duration.ofMinutes(2), false),
+    CAPABILITIES("/api/capabilities", Duration.ofSeconds(10), true),
+    TEST_VALIDATE("/api/test/validate", Duration.ofSeconds(60), true),
+    // Not retried: repeated logins may trip lockouts, a refresh may rotate the token
+    AUTH_LOGIN("/api/auth/login", Duration.ofSeconds(15), false),
+    AUTH_REFRESH("/api/auth/refresh", Duration.ofSeconds(15), false);
+
+    private final String path;
+    private final Duration deadline;
+    private final boolean idempotent;
+
+    BackendEndpoint(String path, Duration deadline, boolean idempotent) {
+        this.path = path;
+        this.deadline = deadline;
+        this.idempotent = idempotent;
+    }
+
+    public String path() {
+        return path;
+    }
+
+    public Duration deadline() {
+        return deadline;
+    }
+
+    /** Safe to resend after a failure once the request may have reached the backend (I/O error, 502/503/504). */
+    public boolean isIdempotent() {
+        return idempotent;
+    }
+
+    /** The longest deadline of any route: no call can legitimately take longer. */
+    public static Duration longestDeadline() {
+        Duration longest = Duration.ZERO;
+        for (BackendEndpoint endpoint : values()) {
+            if (endpoint.deadline.compareTo(longest) > 0) {
+                longest = endpoint.deadline;
+            }
+        }
+        return longest;
+    }
+
+    public URI uri() {
+        return URI.create(BackendTransport.BASE_URL + path);
+    }
+}
@@ -0,0 +1,88 @@
+package com.ai.codereview.plugin;
+
+import java.util.function.Consumer;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.swt.widgets.Display;
+
+/**
+ * BackendJob
+ * ----------
+ * Runs one slow action (a backend round trip, a file write) off the UI
+ * thread as a cancellable Eclipse Job.
+ * - Shows up in the Progress view under its name; callers show their own
+ *   busy state and Cancel button instead of a modal progress dialog
+ * - cancel() interrupts the worker, which aborts a pending HTTP exchange
+ * - onDone gets the result on the UI thread; it is not called when cancelled
+ * - onFinished always runs on the UI thread afterwards (re-enable buttons...)
+ */
+public class BackendJob<T> extends Job {
+
+    @FunctionalInterface
+    public interface Action<T> {
+        T run(IProgressMonitor monitor) throws Exception;
+    }
+
+    private final Action<T> action;
+    private final Consumer<T> onDone;
+    private Runnable onFinished = () -> {};
+    private final Object workerLock = new Object();
+    private Thread worker; // guarded by workerLock
+
+    public BackendJob(String name, Action<T> action, Consumer<T> onDone) {
+        super(name);
+        this.action = action;
+        this.onDone = onDone;
+    }
+
+    /** Runs on the UI thread once the job has ended, whatever the outcome. */
+    public BackendJob<T> whenFinished(Runnable onFinished) {
+        this.onFinished = onFinished;
+        return this;
+    }
+
+    @Override
+    protected IStatus run(IProgressMonitor monitor) {
+        synchronized (workerLock) {
+            worker = Thread.currentThread();
+        }
+        monitor.beginTask(getName(), IProgressMonitor.UNKNOWN);
+        try {
+            T result = action.run(monitor);
+            if (monitor.isCanceled()) {
+                return Status.CANCEL_STATUS;
+            }
+            Display.getDefault().asyncExec(() -> onDone.accept(result));
+            return Status.OK_STATUS;
+
+        } catch (InterruptedException e) {
+            return Status.CANCEL_STATUS;
+
+        } catch (Exception e) {
+            if (monitor.isCanceled()) {
+                return Status.CANCEL_STATUS;
+            }
+            return new Status(IStatus.ERROR, Activator.PLUGIN_ID, getName() + " failed", e);
+
+        } finally {
+            synchronized (workerLock) {
+                worker = null;
+                Thread.interrupted(); // don't leak the cancel into the next job on this worker
+            }
+            monitor.done();
+            Display.getDefault().asyncExec(onFinished);
+        }
+    }
+
+    @Override
+    protected void canceling() {
+        synchronized (workerLock) {
+            if (worker != null) {
+                worker.interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,343 @@
+package com.ai.codereview.plugin;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * BackendTransport
+ * ----------------
+ * One long-lived HttpClient shared by AIClient, TestClient and AuthClient.
+ * - Keeps connections alive between reviews (no per-request TCP setup)
+ * - Prefers HTTP/2 so concurrent requests multiplex over one connection
+ * - Warms up a connection when the plugin starts
+ * - Gzips large request bodies and transparently inflates gzip responses
+ * - Enforces each endpoint's deadline, including the response body
+ * - Retries failed connects, and idempotent calls, with jittered exponential backoff
+ * - Goes through CircuitBreaker, so calls fail fast while the backend is down
+ */
+public class BackendTransport {
+
+    public static final String BASE_URL = "http://127.0.0.1:5142";
+
+    // Set to true while debugging to print more info to console
+    private static final boolean DEBUG = false;
+
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);
+
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long BASE_BACKOFF_MILLIS = 250;
+    private static final long MAX_BACKOFF_MILLIS = 4000;
+
+    // Closes response bodies that are still being read when their deadline passes
+    private static final ScheduledThreadPoolExecutor watchdog = new ScheduledThreadPoolExecutor(1, r -> {
+        Thread t = new Thread(r, "ai-backend-deadline");
+        t.setDaemon(true);
+        return t;
+    });
+    static {
+        watchdog.setRemoveOnCancelPolicy(true);
+    }
+
+    private static HttpClient client;
+
+    // Cleared when the backend answers 415 to a compressed body
+    private static volatile boolean gzipRequestsAccepted = true;
+
+    public static synchronized HttpClient client() {
+        if (client == null) {
+            client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_2)
+                    .connectTimeout(CONNECT_TIMEOUT)
+                    .followRedirects(HttpClient.Redirect.NORMAL)
+                    .build();
+        }
+        return client;
+    }
+
+    /** Request builder for an endpoint with the headers every call shares. */
+    public static HttpRequest.Builder newRequest(BackendEndpoint endpoint) {
+        return HttpRequest.newBuilder(endpoint.uri())
+                .header("Accept", "application/json")
+                .header("Accept-Encoding", "gzip");
+    }
+
+    /**
+     * Single way for all clients to send a request over the shared connection pool.
+     * The returned body is already decompressed.
+     */
+    public static HttpResponse<InputStream> send(BackendEndpoint endpoint, HttpRequest.Builder request)
+            throws IOException, InterruptedException {
+        return execute(endpoint, request);
+    }
+
+    /**
+     * POSTs a streamed body. Bodies above the compression threshold are gzipped;
+     * if the backend rejects that with 415 the request is resent uncompressed
+     * and later requests skip compression.
+     */
+    public static HttpResponse<InputStream> post(BackendEndpoint endpoint, HttpRequest.Builder request,
+                                                 StreamingBody.Writer body)
+            throws IOException, InterruptedException {
+        return post(endpoint, request, body, -1);
+    }
+
+    /**
+     * Same, for a body known to be at least minLength bytes (-1 if unknown):
+     * one that is certainly above the threshold is not test-written first.
+     */
+    public static HttpResponse<InputStream> post(BackendEndpoint endpoint, HttpRequest.Builder request,
+                                                 StreamingBody.Writer body, long minLength)
+            throws IOException, InterruptedException {
+
+        if (PluginSettings.isCompressionEnabled() && gzipRequestsAccepted) {
+            int threshold = PluginSettings.getCompressionThreshold();
+            byte[] small = minLength > threshold ? null : StreamingBody.capture(body, threshold);
+            if (small != null) {
+                return execute(endpoint, request.POST(HttpRequest.BodyPublishers.ofByteArray(small)));
+            }
+
+            HttpResponse<InputStream> response = execute(endpoint, request.copy()
+                    .header("Content-Encoding", "gzip")
+                    .POST(StreamingBody.of(StreamingBody.gzip(body))));
+
+            if (response.statusCode() != 415) {
+                return response;
+            }
+
+            response.body().close();
+            gzipRequestsAccepted = false;
+            ReviewConsole.show("⚠️ Backend does not accept gzip request bodies, sending uncompressed.");
+        }
+
+        return execute(endpoint, request.POST(StreamingBody.of(body)));
+    }
+
+    /** Thrown without touching the network while the circuit breaker is open. */
+    public static class BackendUnavailableException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        public BackendUnavailableException(long retryInMillis) {
+            super("Backend unavailable — next attempt in " + Math.max(1, retryInMillis / 1000) + "s");
+        }
+    }
+
+    /**
+     * Sends until a response arrives, the attempts are used up or the
+     * endpoint's deadline passes. Failed connects are always retried, since
+     * the backend never saw the request; other I/O errors and 502/503/504
+     * only for idempotent endpoints. All of them count against the circuit
+     * breaker.
+     */
+    private static HttpResponse<InputStream> execute(BackendEndpoint endpoint, HttpRequest.Builder request)
+            throws IOException, InterruptedException {
+        long deadline = System.nanoTime() + endpoint.deadline().toNanos();
+        for (int attempt = 1; ; attempt++) {
+            if (!CircuitBreaker.allowRequest()) {
+                throw new BackendUnavailableException(CircuitBreaker.getRetryInMillis());
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                throw new HttpTimeoutException(endpoint.path() + ": deadline exceeded");
+            }
+
+            try {
+                HttpResponse<InputStream> response = client().send(
+                        request.copy().timeout(Duration.ofNanos(remaining)).build(), decodingHandler(deadline));
+
+                int status = response.statusCode();
+                if (status != 502 && status != 503 && status != 504) {
+                    CircuitBreaker.recordSuccess();
+                    return response;
+                }
+                CircuitBreaker.recordFailure();
+                if (!endpoint.isIdempotent() || attempt >= MAX_ATTEMPTS || !backOff(attempt, deadline)) {
+                    return response;
+                }
+                response.body().close();
+
+            } catch (IOException e) {
+                CircuitBreaker.recordFailure();
+                boolean retryable = endpoint.isIdempotent() || isConnectFailure(e);
+                if (!retryable || attempt >= MAX_ATTEMPTS || !backOff(attempt, deadline)) {
+                    throw e;
+                }
+            } catch (InterruptedException | RuntimeException e) {
+                // Cancelled or superseded: says nothing about the backend
+                CircuitBreaker.releaseProbe();
+                throw e;
+            }
+        }
+    }
+
+    /** The connection was never established, so no request reached the backend. */
+    private static boolean isConnectFailure(IOException e) {
+        return e instanceof ConnectException || e instanceof HttpConnectTimeoutException
+                || e.getCause() instanceof ConnectException;
+    }
+
+    /** Sleeps a random time up to base * 2^(attempt-1); false if that would pass the deadline. */
+    private static boolean backOff(int attempt, long deadline) throws InterruptedException {
+        long cap = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << (attempt - 1));
+        long sleep = ThreadLocalRandom.current().nextLong(cap + 1);
+        if (System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(sleep) >= deadline) {
+            return false;
+        }
+        Thread.sleep(sleep);
+        return true;
+    }
+
+    /** Reads a (small) response body fully as UTF-8 text. */
+    public static String readBody(HttpResponse<InputStream> response) throws IOException {
+        try (InputStream in = response.body()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /** Called from Activator.start(): opens the first connection before the first commit. */
+    public static void warmUp() {
+        HttpRequest ping = HttpRequest.newBuilder(URI.create(BASE_URL + "/"))
+                .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                .build();
+
+        client().sendAsync(ping, HttpResponse.BodyHandlers.discarding())
+                .whenComplete((res, err) -> {
+                    if (!DEBUG) {
+                        return;
+                    }
+                    if (err != null) {
+                        System.out.println("⚠️ Backend warm-up failed: " + err.getMessage());
+                    } else {
+                        System.out.println("🔌 Backend connection ready (" + res.version() + ")");
+                    }
+                });
+    }
+
+    /** Called from Activator.stop(): drops pooled connections. */
+    public static synchronized void shutdown() {
+        if (client != null) {
+            client.shutdownNow();
+            client = null;
+        }
+        gzipRequestsAccepted = true;
+    }
+
+    private static HttpResponse.BodyHandler<InputStream> decodingHandler(long deadline) {
+        return info -> {
+            boolean gzip = info.headers().firstValue("Content-Encoding")
+                    .map(v -> v.trim().equalsIgnoreCase("gzip"))
+                    .orElse(false);
+
+            return HttpResponse.BodySubscribers.mapping(
+                    HttpResponse.BodySubscribers.ofInputStream(),
+                    in -> {
+                        InputStream timed = new DeadlineInputStream(in, deadline);
+                        return gzip ? new LazyGzipInputStream(timed) : timed;
+                    });
+        };
+    }
+
+    /**
+     * Fails reads once the deadline has passed. A watchdog closes the raw
+     * stream at the deadline, which also wakes a read blocked on a stalled
+     * connection.
+     */
+    private static class DeadlineInputStream extends FilterInputStream {
+
+        private final ScheduledFuture<?> timer;
+        private volatile boolean expired;
+
+        DeadlineInputStream(InputStream raw, long deadline) {
+            super(raw);
+            timer = watchdog.schedule(() -> {
+                expired = true;
+                try {
+                    raw.close();
+                } catch (IOException ignored) {}
+            }, deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        private void check() throws IOException {
+            if (expired) {
+                throw new HttpTimeoutException("Response deadline exceeded");
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) == -1 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            check();
+            int n;
+            try {
+                n = in.read(b, off, len);
+            } catch (IOException e) {
+                check(); // "closed" by the watchdog
+                throw e;
+            }
+            check();
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            timer.cancel(false);
+            in.close();
+        }
+    }
+
+    /**
+     * GZIPInputStream reads the gzip header in its constructor, which must not
+     * happen inside a body subscriber mapping; defer it to the first read.
+     */
+    private static class LazyGzipInputStream extends FilterInputStream {
+
+        private boolean opened;
+
+        LazyGzipInputStream(InputStream raw) {
+            super(raw);
+        }
+
+        private void open() throws IOException {
+            if (!opened) {
+                in = new GZIPInputStream(in, 8 * 1024);
+                opened = true;
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            open();
+            return in.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            open();
+            return in.read(b, off, len);
+        }
+
+        @Override
+        public int available() throws IOException {
+            return opened ? in.available() : 0;
+        }
+    }
+}
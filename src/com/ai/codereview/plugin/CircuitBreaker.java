@@ -0,0 +1,193 @@
+package com.ai.codereview.plugin;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * CircuitBreaker
+ * --------------
+ * Fails backend calls fast while the backend is down.
+ * - CLOSED: calls go through; consecutive failures are counted
+ * - OPEN: after N failures in a row calls fail immediately for a cool-down
+ * - HALF_OPEN: after the cool-down one probe call is let through;
+ *   success closes the breaker, failure opens it again for twice as long.
+ *   A probe that is interrupted counts as neither and frees the slot; one
+ *   that never reports back is given up on after a timeout
+ *
+ * There is a single backend, so there is a single breaker. Listeners are
+ * called in transition order, after the breaker's lock has been released.
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private static final int FAILURE_THRESHOLD = 3;
+    private static final Duration BASE_COOL_DOWN = Duration.ofSeconds(5);
+    private static final Duration MAX_COOL_DOWN = Duration.ofMinutes(1);
+    // A probe still out after this long is presumed lost; another one may go.
+    // No shorter than any call may run, so a slow review is not mistaken for a lost probe
+    private static final Duration PROBE_TIMEOUT = BackendEndpoint.longestDeadline();
+
+    private static State state = State.CLOSED;
+    private static int consecutiveFailures;
+    private static Duration coolDown = BASE_COOL_DOWN;
+    private static long openUntilMillis;
+    private static boolean probeInFlight;
+    private static Thread probeOwner;
+    private static long probeStartedMillis;
+
+    private static final List<Consumer<State>> listeners = new CopyOnWriteArrayList<>();
+    private static final ArrayDeque<State> undelivered = new ArrayDeque<>(); // guarded by the class lock
+    private static final Object notifyLock = new Object();
+
+    /** True if a call may be made now. In HALF_OPEN only one caller gets true. */
+    public static boolean allowRequest() {
+        boolean allowed;
+        boolean changed;
+        synchronized (CircuitBreaker.class) {
+            allowed = decideRequest();
+            changed = !undelivered.isEmpty();
+        }
+        if (changed) {
+            notifyListeners();
+        }
+        return allowed;
+    }
+
+    private static boolean decideRequest() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (System.currentTimeMillis() < openUntilMillis) {
+                    return false;
+                }
+                transition(State.HALF_OPEN);
+                startProbe();
+                return true;
+            default:
+                if (probeInFlight
+                        && System.currentTimeMillis() - probeStartedMillis < PROBE_TIMEOUT.toMillis()) {
+                    return false;
+                }
+                startProbe();
+                return true;
+        }
+    }
+
+    /**
+     * The calling thread's probe ended without an outcome (interrupted,
+     * cancelled, unexpected exception): let the next caller probe instead.
+     * Does nothing for calls that were not the probe.
+     */
+    public static synchronized void releaseProbe() {
+        if (probeInFlight && probeOwner == Thread.currentThread()) {
+            probeInFlight = false;
+            probeOwner = null;
+        }
+    }
+
+    public static void recordSuccess() {
+        boolean changed;
+        synchronized (CircuitBreaker.class) {
+            consecutiveFailures = 0;
+            coolDown = BASE_COOL_DOWN;
+            probeInFlight = false;
+            probeOwner = null;
+            transition(State.CLOSED);
+            changed = !undelivered.isEmpty();
+        }
+        if (changed) {
+            notifyListeners();
+        }
+    }
+
+    public static void recordFailure() {
+        boolean changed;
+        synchronized (CircuitBreaker.class) {
+            probeInFlight = false;
+            probeOwner = null;
+            if (state == State.HALF_OPEN) {
+                coolDown = coolDown.multipliedBy(2).compareTo(MAX_COOL_DOWN) > 0 ? MAX_COOL_DOWN : coolDown.multipliedBy(2);
+                open();
+            } else {
+                consecutiveFailures++;
+                if (state == State.CLOSED && consecutiveFailures >= FAILURE_THRESHOLD) {
+                    open();
+                }
+            }
+            changed = !undelivered.isEmpty();
+        }
+        if (changed) {
+            notifyListeners();
+        }
+    }
+
+    public static synchronized State getState() {
+        return state;
+    }
+
+    /** Milliseconds until the next probe is allowed; 0 unless OPEN. */
+    public static synchronized long getRetryInMillis() {
+        return state == State.OPEN ? Math.max(0, openUntilMillis - System.currentTimeMillis()) : 0;
+    }
+
+    /** Notified (on the thread that caused it, without the breaker's lock) whenever the state changes. */
+    public static void addListener(Consumer<State> listener) {
+        listeners.add(listener);
+    }
+
+    public static void removeListener(Consumer<State> listener) {
+        listeners.remove(listener);
+    }
+
+    // ----------------------------- INTERNALS -----------------------------
+
+    private static void startProbe() {
+        probeInFlight = true;
+        probeOwner = Thread.currentThread();
+        probeStartedMillis = System.currentTimeMillis();
+    }
+
+    private static void open() {
+        openUntilMillis = System.currentTimeMillis() + coolDown.toMillis();
+        transition(State.OPEN);
+    }
+
+    /** Called under the class lock; listeners hear about it in notifyListeners(). */
+    private static void transition(State next) {
+        if (state == next) {
+            return;
+        }
+        state = next;
+        undelivered.add(next);
+    }
+
+    /**
+     * Delivers recorded transitions oldest first. Runs without the class lock,
+     * so a listener may call back into the breaker (or into something that
+     * does) without deadlocking against a request thread.
+     */
+    private static void notifyListeners() {
+        synchronized (notifyLock) {
+            while (true) {
+                State next;
+                synchronized (CircuitBreaker.class) {
+                    next = undelivered.poll();
+                }
+                if (next == null) {
+                    return;
+                }
+                ReviewConsole.show("🔌 Backend circuit " + next);
+                for (Consumer<State> listener : listeners) {
+                    try {
+                        listener.accept(next);
+                    } catch (Exception ignored) {}
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.ai.codereview.plugin;
+
+import java.io.IOException;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.DiffFormatter;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+
+/**
+ * DiffCompactor
+ * -------------
+ * Shapes a filtered commit diff to fit the model's token budget.
+ * - Tokens are estimated as formatted bytes / 4
+ * - Files keep 3 context lines while the whole diff fits
+ * - Otherwise the largest file drops to 1, then 0 context lines,
+ *   until the estimate fits or every file is at 0
+ *
+ * Renames and copies are detected when the commit is scanned
+ * (GitDiffProvider.scan), so a moved file costs a header, not its content.
+ * A diff still over budget at 0 context is split by ReviewPlanner.
+ */
+public class DiffCompactor {
+
+    /** Context levels tried in order; git's default first. */
+    private static final int[] CONTEXT_LEVELS = {3, 1, 0};
+
+    private static final int BYTES_PER_TOKEN = 4;
+
+    public static Result compact(Repository repo, List<DiffEntry> entries, int tokenBudget) throws IOException {
+        Result result = new Result(entries);
+
+        // Cheap upper bound first: most commits fit without formatting anything
+        long upperBound = 0;
+        try (ObjectReader reader = repo.newObjectReader()) {
+            for (DiffEntry entry : entries) {
+                upperBound += ReviewPlanner.estimateBytes(reader, entry);
+            }
+        }
+        if (upperBound / BYTES_PER_TOKEN <= tokenBudget) {
+            result.estimatedTokens = upperBound / BYTES_PER_TOKEN;
+            return result;
+        }
+
+        Map<DiffEntry, Integer> level = new IdentityHashMap<>();
+        Map<DiffEntry, Long> tokens = new IdentityHashMap<>();
+        long total = 0;
+        for (DiffEntry entry : entries) {
+            level.put(entry, 0);
+            long t = measureTokens(repo, entry, CONTEXT_LEVELS[0]);
+            tokens.put(entry, t);
+            total += t;
+        }
+
+        while (total > tokenBudget) {
+            DiffEntry largest = null;
+            for (DiffEntry entry : entries) {
+                if (level.get(entry) < CONTEXT_LEVELS.length - 1
+                        && (largest == null || tokens.get(entry) > tokens.get(largest))) {
+                    largest = entry;
+                }
+            }
+            if (largest == null) {
+                break; // all files at 0 context; ReviewPlanner splits the rest
+            }
+
+            int next = level.get(largest) + 1;
+            long t = measureTokens(repo, largest, CONTEXT_LEVELS[next]);
+            total += t - tokens.get(largest);
+            level.put(largest, next);
+            tokens.put(largest, t);
+            result.context.put(largest, CONTEXT_LEVELS[next]);
+        }
+
+        result.estimatedTokens = total;
+        return result;
+    }
+
+    private static long measureTokens(Repository repo, DiffEntry entry, int context) throws IOException {
+        HunkOutputStream counter = HunkOutputStream.measuring();
+        try (DiffFormatter df = GitDiffProvider.newFormatter(counter, repo)) {
+            df.setContext(context);
+            df.format(entry);
+            df.flush();
+        }
+        long bytes = counter.getHeaderBytes();
+        for (long hunk : counter.getHunkBytes()) {
+            bytes += hunk;
+        }
+        return (bytes + BYTES_PER_TOKEN - 1) / BYTES_PER_TOKEN;
+    }
+
+    // ----------------------------- RESULT -----------------------------
+
+    /** The files to review and the context lines chosen for each. */
+    public static class Result {
+
+        private final List<DiffEntry> entries;
+        private final Map<DiffEntry, Integer> context = new IdentityHashMap<>();
+        private long estimatedTokens;
+
+        private Result(List<DiffEntry> entries) {
+            this.entries = List.copyOf(entries);
+        }
+
+        public List<DiffEntry> getEntries() {
+            return entries;
+        }
+
+        public int contextOf(DiffEntry entry) {
+            return context.getOrDefault(entry, CONTEXT_LEVELS[0]);
+        }
+
+        /** Number of files formatted with less than the default context. */
+        public int getReducedFileCount() {
+            return context.size();
+        }
+
+        public long getEstimatedTokens() {
+            return estimatedTokens;
+        }
+
+        /** Formats some of this diff's files, each with its chosen context. */
+        public void format(DiffFormatter df, List<DiffEntry> files) throws IOException {
+            for (DiffEntry entry : files) {
+                format(df, entry);
+            }
+            df.flush();
+        }
+
+        public void format(DiffFormatter df, DiffEntry entry) throws IOException {
+            df.setContext(contextOf(entry));
+            df.format(entry);
+        }
+    }
+}
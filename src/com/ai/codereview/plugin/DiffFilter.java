@@ -0,0 +1,234 @@
+package com.ai.codereview.plugin;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.jgit.attributes.Attributes;
+import org.eclipse.jgit.diff.DiffAlgorithm;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.diff.RawTextComparator;
+import org.eclipse.jgit.lib.AbbreviatedObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.PathFilterGroup;
+
+/**
+ * DiffFilter
+ * ----------
+ * Drops files from a commit diff that are not worth a review request.
+ * - Paths matching the configured exclude globs (lockfiles, minified assets...)
+ * - Files marked linguist-generated or linguist-vendored in .gitattributes
+ * - Files larger than the per-file size cap
+ * - Binary files
+ * - Files whose only changes are whitespace
+ *
+ * Runs between the tree scan and ReviewPlanner, so dropped files are
+ * never formatted. The result reports what was removed.
+ */
+public class DiffFilter {
+
+    public enum Reason {
+        EXCLUDED("excluded"),
+        GENERATED("generated"),
+        TOO_LARGE("too large"),
+        BINARY("binary"),
+        WHITESPACE("whitespace only");
+
+        private final String label;
+
+        Reason(String label) {
+            this.label = label;
+        }
+    }
+
+    /** Same sniffing window as git: a NUL byte in the first 8000 bytes means binary. */
+    private static final int BINARY_SNIFF_BYTES = 8000;
+
+    public static Result filter(Repository repo, ObjectId newTree, List<DiffEntry> entries) throws IOException {
+        Result result = new Result();
+        List<PathMatcher> excludes = matchers(PluginSettings.getExcludedPathGlobs());
+        long maxFileBytes = PluginSettings.getMaxFileBytes();
+
+        try (ObjectReader reader = repo.newObjectReader()) {
+            Set<String> generated = generatedPaths(repo, reader, newTree, entries);
+
+            for (DiffEntry entry : entries) {
+                Reason reason = reasonToDrop(reader, entry, excludes, generated, maxFileBytes);
+                if (reason == null) {
+                    result.kept.add(entry);
+                } else {
+                    result.skippedFiles.merge(reason, 1, Integer::sum);
+                    result.skippedBytes += ReviewPlanner.estimateBytes(reader, entry); // estimated from blob sizes, not measured
+                }
+            }
+        }
+        return result;
+    }
+
+    private static Reason reasonToDrop(ObjectReader reader, DiffEntry entry, List<PathMatcher> excludes,
+                                       Set<String> generated, long maxFileBytes) throws IOException {
+        String path = pathOf(entry);
+        if (matchesAny(excludes, path)) {
+            return Reason.EXCLUDED;
+        }
+        if (generated.contains(path)) {
+            return Reason.GENERATED;
+        }
+        if (entry.getOldMode().getObjectType() != Constants.OBJ_BLOB
+                && entry.getNewMode().getObjectType() != Constants.OBJ_BLOB) {
+            return null; // submodule or mode-only change; nothing to load
+        }
+
+        long oldSize = ReviewPlanner.blobSize(reader, entry.getOldId());
+        long newSize = ReviewPlanner.blobSize(reader, entry.getNewId());
+        if (Math.max(oldSize, newSize) > maxFileBytes) {
+            return Reason.TOO_LARGE;
+        }
+
+        byte[] oldRaw = load(reader, entry.getOldId());
+        byte[] newRaw = load(reader, entry.getNewId());
+        if (isBinary(oldRaw) || isBinary(newRaw)) {
+            return Reason.BINARY;
+        }
+        if (entry.getChangeType() == DiffEntry.ChangeType.MODIFY && PluginSettings.isIgnoreWhitespaceEnabled()
+                && isWhitespaceOnly(oldRaw, newRaw)) {
+            return Reason.WHITESPACE;
+        }
+        return null;
+    }
+
+    /**
+     * Paths of the changed files that .gitattributes marks as generated or
+     * vendored. A TreeWalk over the new tree resolves nested .gitattributes
+     * files and .git/info/attributes the same way git does.
+     */
+    private static Set<String> generatedPaths(Repository repo, ObjectReader reader, ObjectId newTree,
+                                              List<DiffEntry> entries) throws IOException {
+        Set<String> paths = new HashSet<>();
+        for (DiffEntry entry : entries) {
+            if (entry.getChangeType() != DiffEntry.ChangeType.DELETE) {
+                paths.add(entry.getNewPath());
+            }
+        }
+        Set<String> generated = new HashSet<>();
+        if (newTree == null || paths.isEmpty()) {
+            return generated;
+        }
+
+        try (TreeWalk walk = new TreeWalk(repo, reader)) {
+            walk.setAttributesNodeProvider(repo.createAttributesNodeProvider());
+            walk.addTree(newTree);
+            walk.setRecursive(true);
+            walk.setFilter(PathFilterGroup.createFromStrings(paths));
+            while (walk.next()) {
+                Attributes attributes = walk.getAttributes();
+                if (isTrue(attributes, "linguist-generated") || isTrue(attributes, "linguist-vendored")) {
+                    generated.add(walk.getPathString());
+                }
+            }
+        }
+        return generated;
+    }
+
+    private static boolean isTrue(Attributes attributes, String key) {
+        return attributes.isSet(key) || "true".equalsIgnoreCase(attributes.getValue(key));
+    }
+
+    private static boolean isWhitespaceOnly(byte[] oldRaw, byte[] newRaw) {
+        return DiffAlgorithm.getAlgorithm(DiffAlgorithm.SupportedAlgorithm.HISTOGRAM)
+                .diff(RawTextComparator.WS_IGNORE_ALL, new RawText(oldRaw), new RawText(newRaw))
+                .isEmpty();
+    }
+
+    private static boolean isBinary(byte[] raw) {
+        return RawText.isBinary(raw, Math.min(raw.length, BINARY_SNIFF_BYTES), true);
+    }
+
+    /** Blob content; callers have already checked it is under the size cap. */
+    private static byte[] load(ObjectReader reader, AbbreviatedObjectId id) throws IOException {
+        if (id == null || !id.isComplete() || id.toObjectId().equals(ObjectId.zeroId())) {
+            return new byte[0];
+        }
+        try (InputStream in = reader.open(id.toObjectId(), Constants.OBJ_BLOB).openStream()) {
+            return in.readAllBytes();
+        }
+    }
+
+    // ----------------------------- GLOBS -----------------------------
+
+    private static List<PathMatcher> matchers(List<String> globs) {
+        List<PathMatcher> matchers = new ArrayList<>();
+        for (String glob : globs) {
+            try {
+                matchers.add(FileSystems.getDefault().getPathMatcher("glob:" + glob));
+            } catch (IllegalArgumentException e) {
+                ReviewConsole.show("⚠️ Ignoring invalid exclude glob '" + glob + "': " + e.getMessage());
+            }
+        }
+        return matchers;
+    }
+
+    /** Also tried with a leading slash, so a leading ** matches files at the repository root too. */
+    private static boolean matchesAny(List<PathMatcher> matchers, String path) {
+        Path relative = Path.of(path);
+        Path rooted = Path.of("/" + path);
+        for (PathMatcher matcher : matchers) {
+            if (matcher.matches(relative) || matcher.matches(rooted)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String pathOf(DiffEntry entry) {
+        return entry.getChangeType() == DiffEntry.ChangeType.DELETE ? entry.getOldPath() : entry.getNewPath();
+    }
+
+    // ----------------------------- RESULT -----------------------------
+
+    public static class Result {
+
+        private final List<DiffEntry> kept = new ArrayList<>();
+        private final Map<Reason, Integer> skippedFiles = new EnumMap<>(Reason.class);
+        private long skippedBytes;
+
+        public List<DiffEntry> getKept() {
+            return kept;
+        }
+
+        public int getSkippedFileCount() {
+            return skippedFiles.values().stream().mapToInt(Integer::intValue).sum();
+        }
+
+        /** Estimated diff bytes that were not sent. */
+        public long getSkippedBytes() {
+            return skippedBytes;
+        }
+
+        /** e.g. "3 files (est. ~120 KB): 2 generated, 1 binary" */
+        public String summary() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(getSkippedFileCount()).append(getSkippedFileCount() == 1 ? " file" : " files")
+              .append(" (est. ~").append(Math.max(1, skippedBytes / 1024)).append(" KB): ");
+            String sep = "";
+            for (Map.Entry<Reason, Integer> e : skippedFiles.entrySet()) {
+                sb.append(sep).append(e.getValue()).append(' ').append(e.getKey().label);
+                sep = ", ";
+            }
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.ai.codereview.plugin;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * DiffSource
+ * ----------
+ * A diff that is written on demand instead of being held as a String.
+ * Implementations must be replayable: every call writes the full diff again.
+ */
+@FunctionalInterface
+public interface DiffSource {
+
+    void writeTo(OutputStream out) throws IOException;
+
+    static DiffSource of(String text) {
+        return out -> out.write(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
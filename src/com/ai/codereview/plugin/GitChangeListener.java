@@ -1,251 +1,810 @@
 package com.ai.codereview.plugin;
 
-import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.nio.charset.StandardCharsets;
+import java.io.IOException;
 import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 import org.eclipse.core.resources.IProject;
-import org.eclipse.core.runtime.IAdaptable;
-import org.eclipse.jgit.api.Git;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.jgit.diff.DiffEntry;
 import org.eclipse.jgit.diff.DiffFormatter;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevSort;
+import org.eclipse.jgit.revwalk.RevWalk;
 import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
-import org.eclipse.jface.viewers.ISelection;
-import org.eclipse.jface.viewers.IStructuredSelection;
-import org.eclipse.swt.widgets.Display;
-import org.eclipse.ui.IWorkbenchWindow;
-import org.eclipse.ui.PlatformUI;
 
 /**
  * GitChangeListener
  * -----------------
- * - Detects active project
- * - Watches Git repo changes
- * - Runs AI review on commit
- * - Auto-switches when changing project
+ * - Finds every Git repository behind the open workspace projects
+ * - Watches all of them from one WatchService thread
+ * - Queues an AI review when a repository's HEAD moves
+ * - Catches up on commits made while Eclipse was closed (review watermarks)
+ * - Follows projects being opened, closed, added and removed
  */
 public class GitChangeListener {
 
     private static GitChangeListener instance;
 
-    private ExecutorService executor = Executors.newSingleThreadExecutor();
-    private IProject currentProject = null;
-    private boolean watcherStarted = false;
-    private String activeGitPath = "None";
+    /** Per-repository watch state; several projects may share one repository. */
+    private static class RepoWatch {
+        final File gitDir;
+        final Set<IProject> projects = new LinkedHashSet<>();
+        Repository repo;           // pooled reference, held while watched
+        WatchKey key;
+        WatchKey gitDirKey;        // deletions in the git dir: a lock or rebase state going away
+        String watchedFileName;
+        boolean pending;
+        boolean waitingForGit;     // fired while Git was busy; re-armed when it finishes
+        long lastEventMillis;
+
+        RepoWatch(File gitDir) {
+            this.gitDir = gitDir;
+        }
+
+        String name() {
+            return projects.isEmpty() ? gitDir.getParentFile().getName() : projects.iterator().next().getName();
+        }
+    }
+
+    /** Present in the git dir while Git is mid-operation. */
+    private static final List<String> BUSY_MARKERS = List.of("index.lock", "HEAD.lock", "rebase-merge", "rebase-apply");
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final WatchService watchService;
+    private final Map<String, RepoWatch> watches = new HashMap<>();
+    private final Map<WatchKey, RepoWatch> watchesByKey = new HashMap<>(); // both keys of every watch
+
+    // Reviews run here; the watcher thread only enqueues
+    private final ReviewScheduler scheduler = new ReviewScheduler(this::runReview);
+
+    private GitChangeListener() throws IOException {
+        watchService = FileSystems.getDefault().newWatchService();
+    }
 
     /** Called from Activator.start() */
-    public static void initialize() {
+    public static synchronized void initialize() throws IOException {
         if (instance == null) {
             instance = new GitChangeListener();
-            instance.hookSelectionListener();
-            instance.attachToInitialProject();
+            instance.hookResourceListener();
+            CircuitBreaker.addListener(instance.breakerListener);
+            instance.executor.submit(instance::watchLoop);
         }
     }
 
-    public static void stopAll() {
+    public static synchronized void stopAll() {
         if (instance != null) {
-            instance.stopWatcherInternal();
+            ResourcesPlugin.getWorkspace().removeResourceChangeListener(instance.resourceListener);
+            CircuitBreaker.removeListener(instance.breakerListener);
             instance.executor.shutdownNow();
+            instance.scheduler.shutdown();
+            instance.unwatchAll();
             instance = null;
         }
     }
 
+    /** Git directories currently being watched. */
     public static String getActiveGitPath() {
-        return (instance != null && instance.watcherStarted) ? instance.activeGitPath : "None";
+        GitChangeListener listener = instance;
+        if (listener == null) {
+            return "None";
+        }
+        synchronized (listener) {
+            return listener.watches.isEmpty() ? "None" : String.join(", ", listener.watches.keySet());
+        }
     }
 
-    // ----------------------------- PROJECT DETECTION -----------------------------
+    // ----------------------------- PROJECT TRACKING -----------------------------
 
-    private void hookSelectionListener() {
-        Display.getDefault().asyncExec(() -> {
-            IWorkbenchWindow window = PlatformUI.getWorkbench().getActiveWorkbenchWindow();
-            if (window != null) {
-                window.getSelectionService().addSelectionListener((part, selection) -> {
-                    IProject selected = resolveProjectFromSelection(selection);
-                    if (selected != null && !selected.equals(currentProject)) {
-                        show("🎯 Project selected → " + selected.getName());
-                        switchToProject(selected);
-                    }
-                });
-            }
-        });
+    private void hookResourceListener() {
+        ResourcesPlugin.getWorkspace().addResourceChangeListener(resourceListener,
+                IResourceChangeEvent.POST_CHANGE
+                        | IResourceChangeEvent.PRE_CLOSE
+                        | IResourceChangeEvent.PRE_DELETE);
     }
 
-    private void attachToInitialProject() {
-        IProject active = getActiveProjectFromUI();
-        if (active != null) {
-            show("📂 Initial active project → " + active.getName());
-            switchToProject(active);
-        } else {
-            show("⚠️ No project selected initially. Select a project to start watching.");
+    private final IResourceChangeListener resourceListener = event -> {
+        switch (event.getType()) {
+            case IResourceChangeEvent.PRE_CLOSE:
+            case IResourceChangeEvent.PRE_DELETE:
+                // Release the repository before the project goes away
+                if (event.getResource() instanceof IProject project) {
+                    unwatchProject(project);
+                }
+                break;
+
+            case IResourceChangeEvent.POST_CHANGE:
+                IResourceDelta delta = event.getDelta();
+                if (delta == null) {
+                    break;
+                }
+                for (IResourceDelta child : delta.getAffectedChildren()) {
+                    if (!(child.getResource() instanceof IProject project)) {
+                        continue;
+                    }
+                    boolean opened = (child.getFlags() & IResourceDelta.OPEN) != 0;
+                    if (child.getKind() == IResourceDelta.ADDED || opened) {
+                        if (project.isOpen()) {
+                            watchProject(project);
+                        } else {
+                            unwatchProject(project);
+                        }
+                    } else if (child.getKind() == IResourceDelta.REMOVED) {
+                        unwatchProject(project);
+                    }
+                }
+                break;
+
+            default:
+                break;
         }
-    }
+    };
 
-    private void switchToProject(IProject project) {
-        stopWatcherInternal();
-        currentProject = project;
-        watcherStarted = false;
-        activeGitPath = "None";
+    private void watchWorkspace() {
+        for (IProject project : ResourcesPlugin.getWorkspace().getRoot().getProjects()) {
+            if (project.isOpen()) {
+                watchProject(project);
+            }
+        }
+        synchronized (this) {
+            if (watches.isEmpty()) {
+                show("⚠️ No Git repositories found in the workspace.");
+            } else {
+                show("📡 Watching " + watches.size() + " Git repositories in the workspace.");
+            }
+        }
+        show("🟢 Waiting for commits...");
+    }
 
-        if (project == null || !project.isOpen()) {
-            show("⚠️ Project is null or not open.");
+    private synchronized void watchProject(IProject project) {
+        File gitDir = findGitDir(project);
+        if (gitDir == null) {
+            return;
+        }
+        String key = keyOf(gitDir);
+        RepoWatch watch = watches.get(key);
+        if (watch != null) {
+            watch.projects.add(project);
             return;
         }
 
-        File gitDir = new File(project.getLocation().toFile(), ".git");
-        if (!gitDir.exists()) {
-            show("⚠️ No Git repo found in project: " + project.getName());
+        watch = new RepoWatch(gitDir);
+        watch.projects.add(project);
+        try {
+            watch.repo = RepositoryPool.acquire(gitDir);
+            register(watch);
+        } catch (Exception e) {
+            if (watch.gitDirKey != null) {
+                watch.gitDirKey.cancel();
+            }
+            RepositoryPool.release(watch.repo);
+            show("⚠️ Cannot watch Git repo of " + project.getName() + ": " + e.getMessage());
             return;
         }
 
-        activeGitPath = gitDir.getAbsolutePath();
-        watcherStarted = true;
+        watches.put(key, watch);
+        watchesByKey.put(watch.key, watch);
+        watchesByKey.put(watch.gitDirKey, watch);
+        show("📡 Watching Git repo: " + watch.name() + " → " + gitDir.getAbsolutePath());
 
-        show("📡 Watching Git repo: " + project.getName());
-        show("🔍 Path: " + activeGitPath);
-        show("🟢 Waiting for commits...");
+        // Commits pulled, merged or made while Eclipse was closed
+        if (AuthManager.isLoggedIn()) {
+            enqueueReview(watch);
+        }
+    }
 
-        executor = Executors.newSingleThreadExecutor();
-        startWatcher(gitDir.toPath());
+    private synchronized void unwatchProject(IProject project) {
+        for (RepoWatch watch : new ArrayList<>(watches.values())) {
+            if (watch.projects.remove(project) && watch.projects.isEmpty()) {
+                unwatch(watch);
+                show("⛔ Stopped watching Git repo: " + project.getName());
+            }
+        }
     }
 
-    private void stopWatcherInternal() {
+    private synchronized void unwatchAll() {
+        new ArrayList<>(watches.values()).forEach(this::unwatch);
         try {
-            watcherStarted = false;
-            activeGitPath = "None";
-            executor.shutdownNow();
-            show("⛔ Git watcher stopped.");
-        } catch (Exception e) {
-            show("⚠️ Error stopping watcher: " + e.getMessage());
+            watchService.close();
+        } catch (IOException ignored) {}
+    }
+
+    private void unwatch(RepoWatch watch) {
+        watches.remove(keyOf(watch.gitDir));
+        watchesByKey.remove(watch.key);
+        watchesByKey.remove(watch.gitDirKey);
+        watch.key.cancel();
+        watch.gitDirKey.cancel();
+        scheduler.cancel(watch.gitDir);
+        RepositoryPool.release(watch.repo);
+    }
+
+    /** Repository containing the project, which may live in a sub-folder of the work tree. */
+    private File findGitDir(IProject project) {
+        if (project.getLocation() == null) {
+            return null;
+        }
+        FileRepositoryBuilder builder = new FileRepositoryBuilder()
+                .findGitDir(project.getLocation().toFile());
+        return builder.getGitDir();
+    }
+
+    private static String keyOf(File gitDir) {
+        try {
+            return gitDir.getCanonicalPath();
+        } catch (IOException e) {
+            return gitDir.getAbsolutePath();
         }
     }
 
     // ----------------------------- WATCHER LOGIC -----------------------------
 
-    private void startWatcher(Path gitDir) {
-        executor.submit(() -> {
-            try {
-                Path logsDir = gitDir.resolve("logs");
-                Path headLogFile = logsDir.resolve("HEAD");
-                Path headFile = gitDir.resolve("HEAD");
-
-                // Prefer watching logs/HEAD (more reliable)
-                boolean useLogs = Files.exists(headLogFile);
-                Path watchDir = useLogs ? logsDir : headFile.getParent();
-
-                // Detect branch file if logs not used
-                Path refFile = headFile;
-                if (!useLogs) {
-                    String headContent = Files.readString(headFile).trim();
-                    if (headContent.startsWith("ref:")) {
-                        refFile = gitDir.resolve(headContent.substring(5).trim());
-                    }
-                }
+    /** Prefers logs/HEAD (updated by every commit, checkout, rebase...); falls back to the branch ref. */
+    private void register(RepoWatch watch) throws IOException {
+        Path gitDir = watch.gitDir.toPath();
+        Path logsDir = gitDir.resolve("logs");
+        Path headFile = gitDir.resolve("HEAD");
+
+        boolean useLogs = Files.exists(logsDir.resolve("HEAD"));
+        Path watchDir = useLogs ? logsDir : gitDir;
+
+        // Detect branch file if logs not used
+        Path refFile = headFile;
+        if (!useLogs) {
+            String headContent = Files.readString(headFile).trim();
+            if (headContent.startsWith("ref:")) {
+                refFile = gitDir.resolve(headContent.substring(5).trim());
+                watchDir = refFile.getParent();
+            }
+        }
 
-                String watchedFileName = useLogs ? "HEAD" : refFile.getFileName().toString();
+        watch.watchedFileName = useLogs ? "HEAD" : refFile.getFileName().toString();
+        // One directory has one key; registering it again would replace its kinds
+        watch.gitDirKey = gitDir.register(watchService, StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE);
+        watch.key = watchDir.equals(gitDir) ? watch.gitDirKey : watchDir.register(watchService,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_CREATE);
+    }
 
-                WatchService watcher = FileSystems.getDefault().newWatchService();
-                watchDir.register(watcher, StandardWatchEventKinds.ENTRY_MODIFY);
+    /** One thread for every repository: collect events, then fire each repo after its quiet window. */
+    private void watchLoop() {
+        watchWorkspace();
+        long quietWindow = PluginSettings.getCommitQuietWindowMs();
 
-                show("👀 Monitoring: " + watchDir.toString() + " → " + watchedFileName);
-                show(useLogs ? "🧠 Tracking via logs/HEAD" : "📡 Tracking via refs directory");
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = hasPending()
+                        ? watchService.poll(quietWindow, TimeUnit.MILLISECONDS)
+                        : watchService.take();
 
-                while (!Thread.currentThread().isInterrupted()) {
-                    WatchKey key = watcher.take();
-                    for (WatchEvent<?> event : key.pollEvents()) {
-                        if (event.context().toString().contains(watchedFileName)) {
-                            Thread.sleep(500); // Wait for Git to complete writing
-                            handleCommit(gitDir.toFile());
-                        }
-                    }
-                    key.reset();
+                if (key != null) {
+                    onEvents(key);
                 }
-                watcher.close();
+                fireQuietRepositories(quietWindow);
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            show("ℹ️ Watcher stopped.");
+        } catch (Exception e) {
+            show("❌ Watcher error: " + e.getMessage());
+        }
+    }
+
+    private synchronized boolean hasPending() {
+        return watches.values().stream().anyMatch(w -> w.pending);
+    }
+
+    private synchronized void onEvents(WatchKey key) {
+        RepoWatch watch = watchesByKey.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (watch == null || event.context() == null) {
+                continue;
+            }
+            String name = event.context().toString();
+            boolean moved = key == watch.key && event.kind() != StandardWatchEventKinds.ENTRY_DELETE
+                    && name.contains(watch.watchedFileName);
+            // The lock or rebase state that held a review back is gone
+            boolean finished = key == watch.gitDirKey && watch.waitingForGit
+                    && event.kind() == StandardWatchEventKinds.ENTRY_DELETE && BUSY_MARKERS.contains(name);
+            if (moved || finished) {
+                watch.pending = true;
+                watch.waitingForGit = false;
+                watch.lastEventMillis = System.currentTimeMillis();
+            }
+        }
+        key.reset();
+    }
 
-            } catch (InterruptedException ie) {
-                show("ℹ️ Watcher stopped (interrupted).");
-            } catch (Exception e) {
-                show("❌ Watcher error: " + e.getMessage());
+    private void fireQuietRepositories(long quietWindow) {
+        List<RepoWatch> ready = new ArrayList<>();
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            for (RepoWatch watch : watches.values()) {
+                if (!watch.pending || now - watch.lastEventMillis < quietWindow) {
+                    continue;
+                }
+                // Quiet window elapsed: queue one review, unless Git is still mid-operation.
+                // A paused rebase can last hours: stop polling and wait for its state to be deleted
+                watch.pending = false;
+                if (isGitBusy(watch.gitDir.toPath())) {
+                    watch.waitingForGit = true;
+                } else {
+                    ready.add(watch);
+                }
             }
-        });
+        }
+        ready.forEach(this::enqueueReview);
+    }
+
+    /** A rebase, merge or ref update is still writing; its final state is what we review. */
+    private boolean isGitBusy(Path gitDir) {
+        return BUSY_MARKERS.stream().anyMatch(name -> Files.exists(gitDir.resolve(name)));
     }
 
     // ----------------------------- COMMIT HANDLER -----------------------------
 
-    private void handleCommit(File gitDir) {
+    /** Queues a catch-up review if HEAD moved past the branch's review watermark. */
+    private void enqueueReview(RepoWatch watch) {
         if (!AuthManager.isLoggedIn()) {
             show("🔒 Login required to run AI Code Review.");
             return;
         }
 
+        // Our own lease: unwatch() may release the watch's one while HEAD is read
+        Repository repo;
+        synchronized (this) {
+            if (watches.get(keyOf(watch.gitDir)) != watch) {
+                return; // unwatched after it was picked
+            }
+            try {
+                repo = RepositoryPool.acquire(watch.gitDir);
+            } catch (IOException e) {
+                show("⚠️ Cannot read HEAD of " + watch.name() + ": " + e.getMessage());
+                return;
+            }
+        }
+
         try {
-            Repository repo = new FileRepositoryBuilder()
-                    .setGitDir(gitDir)
-                    .build();
+            String branch = repo.getFullBranch();
+            ObjectId head = repo.resolve("HEAD");
+            if (branch == null || head == null) {
+                return; // empty repository
+            }
 
-            try (Git git = new Git(repo)) {
-                ObjectId head = repo.resolve("HEAD^{tree}");
-                ObjectId prevHead = repo.resolve("HEAD~1^{tree}");
+            ObjectId mark = ReviewWatermarks.get(watch.gitDir, branch);
+            if (mark == null) {
+                // First time we see this branch: start reviewing from here on
+                ReviewWatermarks.set(watch.gitDir, branch, head);
+                return;
+            }
+            if (head.equals(mark)) {
+                return; // reflog touched but nothing new to review
+            }
+        } catch (IOException e) {
+            show("⚠️ Cannot read HEAD of " + watch.name() + ": " + e.getMessage());
+            return;
+        } finally {
+            RepositoryPool.release(repo);
+        }
 
-                if (head == null || prevHead == null) {
-                    show("⚠️ Not enough commits to generate diff.");
-                    return;
-                }
+        scheduler.submit(watch.gitDir, watch.name());
+    }
 
-                ByteArrayOutputStream out = new ByteArrayOutputStream();
-                try (DiffFormatter df = new DiffFormatter(out)) {
-                    df.setRepository(repo);
-                    df.format(prevHead, head);
+    // ----------------------------- DEFERRED REVIEWS -----------------------------
+
+    // Called on a request thread; the replay itself runs elsewhere
+    private final Consumer<CircuitBreaker.State> breakerListener = state -> {
+        if (state == CircuitBreaker.State.CLOSED) {
+            Thread.ofVirtual().name("ai-review-replay").start(this::replayJournal);
+        }
+    };
+
+    /**
+     * Drops journal entries that were reviewed in the meantime, then queues
+     * one catch-up per watched repository that still has deferred commits.
+     * A catch-up reviews everything since the watermark, so each repository
+     * is replayed as one batch.
+     */
+    private void replayJournal() {
+        if (ReviewJournal.pending().isEmpty() || !AuthManager.isLoggedIn()) {
+            return;
+        }
+        ReviewJournal.retain(this::isStillUnreviewed);
+
+        Set<RepoWatch> repos = new LinkedHashSet<>();
+        synchronized (this) {
+            for (ReviewJournal.Entry entry : ReviewJournal.pending()) {
+                RepoWatch watch = watches.get(keyOf(entry.getGitDir()));
+                if (watch != null) {
+                    repos.add(watch);
                 }
+            }
+            if (!repos.isEmpty()) {
+                show("🔁 Backend reachable again — replaying deferred reviews of " + repos.size() + " repositories.");
+            }
+            repos.forEach(this::enqueueReview);
+        }
+    }
+
+    /** False once the commit is gone or its branch watermark has moved past it. */
+    private boolean isStillUnreviewed(ReviewJournal.Entry entry) {
+        Repository repo;
+        try {
+            repo = RepositoryPool.acquire(entry.getGitDir());
+        } catch (Exception e) {
+            return false; // repository deleted
+        }
+        try (RevWalk walk = new RevWalk(repo)) {
+            if (!repo.getObjectDatabase().has(entry.getCommit())) {
+                return false;
+            }
+            ObjectId mark = ReviewWatermarks.get(entry.getGitDir(), entry.getBranch());
+            if (mark == null || !repo.getObjectDatabase().has(mark)) {
+                return true;
+            }
+            return !walk.isMergedInto(walk.parseCommit(entry.getCommit()), walk.parseCommit(mark));
+        } catch (IOException e) {
+            return true;
+        } finally {
+            RepositoryPool.release(repo);
+        }
+    }
 
-                String diff = out.toString(StandardCharsets.UTF_8);
-                if (diff.isBlank()) {
-                    show("📭 Empty commit — no changes to review.");
-                    return;
+    /** Runs on the scheduler thread: review every commit since the watermark, oldest first. */
+    private void runReview(ReviewJob job) throws Exception {
+        Repository repo = RepositoryPool.acquire(job.getGitDir());
+        try {
+            catchUp(repo, job);
+        } finally {
+            RepositoryPool.release(repo);
+        }
+    }
+
+    /**
+     * Walks HEAD back to the branch watermark with a single RevWalk and
+     * reviews each new commit against its first parent. The watermark
+     * advances after every reviewed commit, so a failure or restart
+     * resumes at the first commit not yet reviewed. Only failures worth
+     * retrying (transport, 5xx, breaker open) stop it and are journaled; a
+     * commit the backend rejects outright (4xx) is reported and passed.
+     */
+    private void catchUp(Repository repo, ReviewJob job) throws Exception {
+        String branch = repo.getFullBranch();
+        ObjectId head = repo.resolve("HEAD");
+        if (branch == null || head == null) {
+            return;
+        }
+        ObjectId mark = ReviewWatermarks.get(job.getGitDir(), branch);
+        int limit = PluginSettings.getCatchUpCommitLimit();
+
+        List<RevCommit> commits = new ArrayList<>();
+        boolean truncated = false;
+        try (RevWalk walk = new RevWalk(repo)) {
+            walk.sort(RevSort.TOPO);
+            walk.sort(RevSort.COMMIT_TIME_DESC, true);
+            walk.markStart(walk.parseCommit(head));
+            if (mark != null && repo.getObjectDatabase().has(mark)) {
+                walk.markUninteresting(walk.parseCommit(mark));
+            } else {
+                limit = 1; // watermark gone (gc, different clone): review HEAD only
+            }
+            for (RevCommit commit : walk) {
+                if (commits.size() == limit) {
+                    truncated = true;
+                    break;
                 }
+                commits.add(commit);
+            }
+        }
+        Collections.reverse(commits); // oldest first
 
-                GitDiffProvider.setLastDiff(diff);
-                show("📜 Commit detected → sending to AI...");
+        if (commits.isEmpty()) {
+            ReviewWatermarks.set(job.getGitDir(), branch, head);
+            return;
+        }
+        if (truncated) {
+            show("⏩ More than " + limit + " new commits in " + job.getRepoName()
+                    + " — reviewing the newest " + limit + ".");
+        } else if (commits.size() > 1) {
+            show("⏪ Catching up on " + commits.size() + " commits in " + job.getRepoName());
+        }
+
+        if (commits.size() > 1 && BackendCapabilities.supports(BackendCapabilities.REVIEW_BATCH)) {
+            reviewBatch(repo, job, branch, commits);
+            return;
+        }
+
+        for (RevCommit commit : commits) {
+            if (job.isCancelled()) {
+                throw new InterruptedException();
+            }
+            ReviewResult.Outcome outcome = reviewCommit(repo, job, commit);
+            if (outcome == ReviewResult.Outcome.RETRYABLE) {
+                ReviewJournal.record(job.getGitDir(), branch, commit);
+                show("📥 Review of " + commit.abbreviate(7).name()
+                        + " deferred — it is retried when the backend is reachable again.");
+                return;
+            }
+            if (outcome == ReviewResult.Outcome.REJECTED) {
+                showRejected(commit);
+            }
+            ReviewWatermarks.set(job.getGitDir(), branch, commit);
+        }
+    }
+
+    /** One commit's diff, filtered, compacted and split into review chunks. */
+    private static class PreparedCommit {
+        final RevCommit commit;
+        final DiffSource diff;
+        final List<ReviewChunk> chunks;
+        final List<String> paths; // files the review covers
+
+        PreparedCommit(RevCommit commit, DiffSource diff, List<ReviewChunk> chunks, List<String> paths) {
+            this.commit = commit;
+            this.diff = diff;
+            this.chunks = chunks;
+            this.paths = paths;
+        }
+    }
+
+    /** Diffs one commit against its first parent; null if nothing is left to review. */
+    private PreparedCommit prepare(Repository repo, ReviewJob job, RevCommit commit) throws IOException {
+        ObjectId head = commit.getTree().getId();
+        ObjectId prevHead = commit.getParentCount() > 0
+                ? repo.resolve(commit.getParent(0).name() + "^{tree}")
+                : null; // root commit: everything is an addition
+
+        show("🔎 " + job.getRepoName() + " " + commit.abbreviate(7).name()
+                + " — " + commit.getShortMessage());
+
+        List<DiffEntry> entries = GitDiffProvider.scan(repo, prevHead, head);
+
+        if (entries.isEmpty()) {
+            show("📭 Empty commit — no changes to review.");
+            return null;
+        }
+
+        DiffFilter.Result filtered = DiffFilter.filter(repo, head, entries);
+        if (filtered.getSkippedFileCount() > 0) {
+            show("🧹 Skipped " + filtered.summary());
+        }
+        if (filtered.getKept().isEmpty()) {
+            show("📭 Nothing left to review after filtering.");
+            return null;
+        }
+
+        DiffCompactor.Result compacted =
+                DiffCompactor.compact(repo, filtered.getKept(), PluginSettings.getReviewTokenBudget());
+        if (compacted.getReducedFileCount() > 0) {
+            show("🗜️ Context reduced in " + compacted.getReducedFileCount() + " files → ~"
+                    + compacted.getEstimatedTokens() + " tokens");
+        }
+
+        // Formatted straight into the request body, never materialized as a String
+        DiffSource diff = out -> {
+            try (DiffFormatter df = GitDiffProvider.newFormatter(out, repo)) {
+                compacted.format(df, compacted.getEntries());
+            }
+        };
+
+        // Test generation may run long after this job released the repository
+        GitDiffProvider.setLastDiff(GitDiffProvider.pooledDiff(job.getGitDir(), compacted));
+
+        List<ReviewChunk> chunks = ReviewPlanner.plan(repo, compacted, PluginSettings.getChunkBudgetBytes());
+        List<String> paths = new ArrayList<>();
+        for (DiffEntry entry : compacted.getEntries()) {
+            if (entry.getChangeType() != DiffEntry.ChangeType.DELETE) {
+                paths.add(entry.getNewPath());
+            }
+        }
+        return new PreparedCommit(commit, diff, chunks, paths);
+    }
+
+    /**
+     * Summarizes the findings of one commit and puts them on the files as
+     * markers. Markers are only replaced after a complete review; a partly
+     * failed one would drop the findings of the chunks that failed. A
+     * complete review without findings clears the files it covered.
+     */
+    private void reportFindings(Repository repo, PreparedCommit prepared, List<ReviewFinding> findings,
+                                boolean success) {
+        if (!findings.isEmpty()) {
+            show(summarize(findings));
+        }
+        if (success && !repo.isBare()) {
+            ReviewMarkers.update(repo.getWorkTree(), prepared.commit.name(), prepared.paths, findings);
+        }
+    }
+
+    /** e.g. "🔎 3 findings: 1 error, 2 warnings" */
+    private static String summarize(List<ReviewFinding> findings) {
+        Map<ReviewFinding.Severity, Integer> counts = new EnumMap<>(ReviewFinding.Severity.class);
+        for (ReviewFinding finding : findings) {
+            counts.merge(finding.getSeverity(), 1, Integer::sum);
+        }
+        StringBuilder sb = new StringBuilder("🔎 " + findings.size() + (findings.size() == 1 ? " finding:" : " findings:"));
+        String[] labels = {"note", "warning", "error"}; // by Severity ordinal
+        String separator = " ";
+        for (int i = labels.length - 1; i >= 0; i--) {
+            Integer count = counts.get(ReviewFinding.Severity.values()[i]);
+            if (count != null) {
+                sb.append(separator).append(count).append(' ').append(labels[i]).append(count == 1 ? "" : "s");
+                separator = ", ";
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Diffs one commit against its first parent and sends it for review.
+     * Local failures (reading the repository) are RETRYABLE like transport ones.
+     */
+    private ReviewResult.Outcome reviewCommit(Repository repo, ReviewJob job, RevCommit commit) throws Exception {
+        try {
+            PreparedCommit prepared = prepare(repo, job, commit);
+            if (prepared == null) {
+                return ReviewResult.Outcome.SUCCESS;
+            }
+            if (job.isCancelled()) {
+                throw new InterruptedException(); // last point before the backend is paid for it
+            }
+            show("📜 Commit detected → sending to AI...");
+
+            List<ReviewChunk> chunks = prepared.chunks;
+            if (chunks.size() == 1) {
                 show("⏳ Analyzing...");
 
-                String response = AIClient.sendReview(diff);
-                show("🤖 Review Result:\n" + response);
+                // Review text is streamed into the console/panel as it arrives
+                show("🤖 Review Result:");
+                List<ReviewFinding> findings = new ArrayList<>();
+                ReviewResult result = AIClient.sendReview(prepared.diff, commit.name(),
+                        ReviewConsole::showFragment, findings::add);
+                ReviewConsole.endFragments();
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedException(); // hard cancel aborted the call; nothing to report
+                }
+                // A soft cancel (superseded) lets the finished review count
+                reportFindings(repo, prepared, findings, result.isSuccess());
+                return result.getOutcome();
             }
 
+            int concurrency = PluginSettings.getReviewConcurrency();
+            show("🧩 Large commit split into " + chunks.size() + " chunks (" + concurrency + " in parallel)");
+            show("⏳ Analyzing...");
+
+            List<ReviewFinding> findings = Collections.synchronizedList(new ArrayList<>());
+            ReviewResult[] results = ReviewPlanner.reviewAll(chunks, commit.name(), concurrency, findings::add);
+            show("🤖 Review Result:\n" + ReviewPlanner.merge(chunks, results));
+            ReviewResult.Outcome outcome = outcomeOf(results);
+            reportFindings(repo, prepared, findings, outcome == ReviewResult.Outcome.SUCCESS);
+            return outcome;
+
+        } catch (InterruptedException e) {
+            throw e;
         } catch (Exception e) {
             show("❌ Error processing commit: " + e.getMessage());
+            return ReviewResult.Outcome.RETRYABLE;
         }
     }
 
-    // ----------------------------- PROJECT RESOLUTION -----------------------------
-
-    private IProject getActiveProjectFromUI() {
-        try {
-            IWorkbenchWindow window = PlatformUI.getWorkbench().getActiveWorkbenchWindow();
-            if (window != null) {
-                ISelection selection = window.getSelectionService().getSelection();
-                return resolveProjectFromSelection(selection);
+    /**
+     * One outcome for all chunks of a commit: any chunk worth retrying makes
+     * the whole commit worth retrying; otherwise any rejection rejects it.
+     */
+    private static ReviewResult.Outcome outcomeOf(ReviewResult[] results) {
+        ReviewResult.Outcome outcome = ReviewResult.Outcome.SUCCESS;
+        for (ReviewResult result : results) {
+            if (result == null || result.isRetryable()) {
+                return ReviewResult.Outcome.RETRYABLE;
+            }
+            if (!result.isSuccess()) {
+                outcome = ReviewResult.Outcome.REJECTED;
             }
-        } catch (Exception ignored) {}
-        return null;
+        }
+        return outcome;
     }
 
-    private IProject resolveProjectFromSelection(ISelection selection) {
-        if (selection instanceof IStructuredSelection) {
-            Object element = ((IStructuredSelection) selection).getFirstElement();
-            if (element instanceof IProject) return (IProject) element;
-            if (element instanceof IAdaptable) return ((IAdaptable) element).getAdapter(IProject.class);
+    /** The backend refused this commit and would again: say so, and don't hold the branch on it. */
+    private void showRejected(RevCommit commit) {
+        show("🚫 Review of " + commit.abbreviate(7).name()
+                + " was rejected by the backend — skipped, it is not retried.");
+    }
+
+    /**
+     * Catch-up over several commits in one batch request: every chunk of
+     * every commit is sent together, then results are reported and the
+     * watermark advanced commit by commit, oldest first.
+     */
+    private void reviewBatch(Repository repo, ReviewJob job, String branch, List<RevCommit> commits)
+            throws Exception {
+        List<PreparedCommit> prepared = new ArrayList<>();
+        List<ReviewChunk> all = new ArrayList<>();
+        List<String> commitIds = new ArrayList<>();
+        for (RevCommit commit : commits) {
+            if (job.isCancelled()) {
+                throw new InterruptedException();
+            }
+            PreparedCommit p;
+            try {
+                p = prepare(repo, job, commit);
+            } catch (IOException e) {
+                show("❌ Error processing commit: " + e.getMessage());
+                break; // review what was prepared; this commit is deferred below
+            }
+            prepared.add(p == null ? new PreparedCommit(commit, null, List.of(), List.of()) : p);
+            if (p != null) {
+                all.addAll(p.chunks);
+                commitIds.addAll(Collections.nCopies(p.chunks.size(), commit.name()));
+            }
+        }
+
+        if (job.isCancelled()) {
+            throw new InterruptedException();
+        }
+        show("📦 Reviewing " + all.size() + " diffs of " + prepared.size() + " commits in one request...");
+        Map<Integer, List<ReviewFinding>> findings = new HashMap<>();
+        ReviewResult[] results = all.isEmpty() ? new ReviewResult[0] : AIClient.reviewBatch(all, commitIds,
+                (index, finding) -> findings.computeIfAbsent(index, k -> new ArrayList<>()).add(finding));
+        // Superseded meanwhile: the batch is paid for, so its results are still reported and recorded
+
+        int offset = 0;
+        for (PreparedCommit p : prepared) {
+            ReviewResult[] own = Arrays.copyOfRange(results, offset, offset + p.chunks.size());
+            List<ReviewFinding> ownFindings = new ArrayList<>();
+            for (int i = offset; i < offset + p.chunks.size(); i++) {
+                ownFindings.addAll(findings.getOrDefault(i, List.of()));
+            }
+            offset += p.chunks.size();
+
+            if (!p.chunks.isEmpty()) {
+                show("🤖 Review Result (" + p.commit.abbreviate(7).name() + "):\n"
+                        + (own.length == 1 ? own[0].getText() : ReviewPlanner.merge(p.chunks, own)));
+            }
+            ReviewResult.Outcome outcome = outcomeOf(own);
+            reportFindings(repo, p, ownFindings, outcome == ReviewResult.Outcome.SUCCESS);
+            if (outcome == ReviewResult.Outcome.REJECTED) {
+                showRejected(p.commit);
+            }
+            if (outcome == ReviewResult.Outcome.RETRYABLE) {
+                ReviewJournal.record(job.getGitDir(), branch, p.commit);
+                show("📥 Review of " + p.commit.abbreviate(7).name()
+                        + " deferred — it is retried when the backend is reachable again.");
+                return;
+            }
+            ReviewWatermarks.set(job.getGitDir(), branch, p.commit);
+        }
+
+        if (prepared.size() < commits.size()) {
+            RevCommit failed = commits.get(prepared.size());
+            ReviewJournal.record(job.getGitDir(), branch, failed);
+            show("📥 Review of " + failed.abbreviate(7).name()
+                    + " deferred — it is retried when the backend is reachable again.");
         }
-        return null;
     }
 
     // ----------------------------- LOGGING -----------------------------
 
+    // ReviewConsole.show() already hops to the UI thread; calling it directly
+    // keeps status lines and streamed review fragments in order.
     private void show(String message) {
-        Display.getDefault().asyncExec(() -> ReviewConsole.show(message));
+        ReviewConsole.show(message);
     }
 }
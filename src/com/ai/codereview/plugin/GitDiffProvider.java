@@ -1,14 +1,58 @@
 package com.ai.codereview.plugin;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.DiffFormatter;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.util.io.DisabledOutputStream;
+
 public class GitDiffProvider {
 
-    private static String lastDiff;
+    // Diff of the last reviewed commit, regenerated on demand (never kept as a String)
+    private static DiffSource lastDiff;
 
-    public static void setLastDiff(String diff) {
+    public static void setLastDiff(DiffSource diff) {
         lastDiff = diff;
     }
 
-    public static String getLastDiff() {
+    public static DiffSource getLastDiff() {
         return lastDiff;
     }
+
+    /** A diff that borrows the repository from RepositoryPool each time it is written. */
+    public static DiffSource pooledDiff(File gitDir, DiffCompactor.Result diff) {
+        return out -> {
+            Repository repo = RepositoryPool.acquire(gitDir);
+            try (DiffFormatter df = newFormatter(out, repo)) {
+                diff.format(df, diff.getEntries());
+            } finally {
+                RepositoryPool.release(repo);
+            }
+        };
+    }
+
+    /** Changed files between two trees, with renames and copies paired up. */
+    public static List<DiffEntry> scan(Repository repo, ObjectId oldTree, ObjectId newTree) throws IOException {
+        try (DiffFormatter df = new DiffFormatter(DisabledOutputStream.INSTANCE)) {
+            df.setRepository(repo);
+            df.setDetectRenames(true);
+            return df.scan(oldTree, newTree);
+        }
+    }
+
+    /**
+     * Every review diff is formatted the same way, so sizes measured once stay valid.
+     * Whitespace changes are kept: indentation matters in some languages, and
+     * hunks without them would not apply to the real files.
+     */
+    public static DiffFormatter newFormatter(OutputStream out, Repository repo) {
+        DiffFormatter df = new DiffFormatter(out);
+        df.setRepository(repo);
+        return df;
+    }
 }
@@ -0,0 +1,122 @@
+package com.ai.codereview.plugin;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * HunkOutputStream
+ * ----------------
+ * Line-level view of ONE file's formatted diff: header lines first,
+ * then hunks, each starting with an "@@" line.
+ * - Measuring mode records the header size and every hunk size
+ * - Slicing mode forwards the header plus hunks [fromHunk, toHunk) only
+ *
+ * No other unified-diff line starts with '@', so one byte at the start
+ * of a line is enough to spot a hunk boundary.
+ */
+public class HunkOutputStream extends OutputStream {
+
+    private final OutputStream out;
+    private final int fromHunk;
+    private final int toHunk;
+
+    private boolean atLineStart = true;
+    private int hunk = -1;
+
+    private long headerBytes;
+    private long currentHunkBytes;
+    private final List<Long> hunkBytes = new ArrayList<>();
+
+    private HunkOutputStream(OutputStream out, int fromHunk, int toHunk) {
+        this.out = out;
+        this.fromHunk = fromHunk;
+        this.toHunk = toHunk;
+    }
+
+    /** Counts bytes per hunk without writing anything. */
+    public static HunkOutputStream measuring() {
+        return new HunkOutputStream(null, 0, 0);
+    }
+
+    /** Forwards the file header and hunks fromHunk (inclusive) to toHunk (exclusive). */
+    public static HunkOutputStream slicing(OutputStream out, int fromHunk, int toHunk) {
+        return new HunkOutputStream(out, fromHunk, toHunk);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (atLineStart && b == '@') {
+            if (hunk >= 0) {
+                hunkBytes.add(currentHunkBytes);
+            }
+            hunk++;
+            currentHunkBytes = 0;
+        }
+        atLineStart = b == '\n';
+
+        if (hunk < 0) {
+            headerBytes++;
+        } else {
+            currentHunkBytes++;
+        }
+
+        if (out != null && (hunk < 0 || (hunk >= fromHunk && hunk < toHunk))) {
+            out.write(b);
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        int end = off + len;
+        while (off < end) {
+            // Copy whole lines in one go; only line starts need a closer look
+            int nl = off;
+            while (nl < end && b[nl] != '\n') {
+                nl++;
+            }
+            int lineEnd = nl < end ? nl + 1 : end;
+
+            write(b[off]);
+            if (lineEnd - off > 1) {
+                writeRest(b, off + 1, lineEnd - off - 1);
+            }
+            off = lineEnd;
+        }
+    }
+
+    private void writeRest(byte[] b, int off, int len) throws IOException {
+        atLineStart = b[off + len - 1] == '\n';
+
+        if (hunk < 0) {
+            headerBytes += len;
+        } else {
+            currentHunkBytes += len;
+        }
+
+        if (out != null && (hunk < 0 || (hunk >= fromHunk && hunk < toHunk))) {
+            out.write(b, off, len);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (out != null) {
+            out.flush();
+        }
+    }
+
+    public long getHeaderBytes() {
+        return headerBytes;
+    }
+
+    /** Size of every hunk written so far, in order. */
+    public List<Long> getHunkBytes() {
+        List<Long> sizes = new ArrayList<>(hunkBytes);
+        if (hunk >= 0) {
+            sizes.add(currentHunkBytes);
+        }
+        return sizes;
+    }
+}
@@ -0,0 +1,412 @@
+package com.ai.codereview.plugin;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * JsonReader
+ * ----------
+ * Pull parser for response bodies, the reading side of JsonWriter.
+ * - Reads straight off the stream through one fixed buffer; the body is never held whole
+ * - Several top-level values in a row are allowed, so NDJSON needs no line splitting
+ * - Long string values can be handed out piece by piece instead of as one String
+ * - skipValue() passes over unknown fields without decoding them
+ *
+ * Malformed input is reported as a MalformedJsonException. Not thread-safe.
+ */
+public class JsonReader {
+
+    public enum Token { BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, NAME, STRING, NUMBER, BOOLEAN, NULL, END_DOCUMENT }
+
+    /** The input is not JSON; unlike other IOExceptions, reading it again gives the same result. */
+    public static class MalformedJsonException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        public MalformedJsonException(String message) {
+            super(message);
+        }
+    }
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+    private static final int MAX_DEPTH = 32;
+
+    // What the parser expects next, per nesting level
+    private static final int DOCUMENT = 0;
+    private static final int EMPTY_ARRAY = 1;
+    private static final int ARRAY = 2;
+    private static final int EMPTY_OBJECT = 3;
+    private static final int OBJECT = 4;
+    private static final int AFTER_NAME = 5;
+
+    private final Reader in;
+    private final char[] buf = new char[BUFFER_SIZE];
+    private int pos;
+    private int limit;
+
+    private final int[] scopes = new int[MAX_DEPTH];
+    private int depth;
+    private Token peeked;
+
+    private final StringBuilder scratch = new StringBuilder();
+
+    public JsonReader(InputStream in) {
+        this(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    public JsonReader(Reader in) {
+        this.in = in;
+        scopes[0] = DOCUMENT;
+    }
+
+    public static JsonReader of(String json) {
+        return new JsonReader(new StringReader(json));
+    }
+
+    public Token peek() throws IOException {
+        if (peeked != null) {
+            return peeked;
+        }
+        int c;
+        switch (scopes[depth]) {
+            case EMPTY_ARRAY:
+            case ARRAY:
+                c = nextNonWhitespace();
+                if (c == ']') {
+                    return peeked = Token.END_ARRAY;
+                }
+                if (scopes[depth] == ARRAY) {
+                    if (c != ',') {
+                        throw syntaxError("expected ',' or ']'");
+                    }
+                    c = nextNonWhitespace();
+                }
+                scopes[depth] = ARRAY;
+                return peeked = valueToken(c);
+
+            case EMPTY_OBJECT:
+            case OBJECT:
+                c = nextNonWhitespace();
+                if (c == '}') {
+                    return peeked = Token.END_OBJECT;
+                }
+                if (scopes[depth] == OBJECT) {
+                    if (c != ',') {
+                        throw syntaxError("expected ',' or '}'");
+                    }
+                    c = nextNonWhitespace();
+                }
+                if (c != '"') {
+                    throw syntaxError("expected a field name");
+                }
+                scopes[depth] = AFTER_NAME;
+                return peeked = Token.NAME;
+
+            case AFTER_NAME:
+                if (nextNonWhitespace() != ':') {
+                    throw syntaxError("expected ':'");
+                }
+                scopes[depth] = OBJECT;
+                return peeked = valueToken(nextNonWhitespace());
+
+            default:
+                c = nextNonWhitespace();
+                if (c == -1) {
+                    return peeked = Token.END_DOCUMENT;
+                }
+                return peeked = valueToken(c);
+        }
+    }
+
+    /** True while the current object or array has more entries. */
+    public boolean hasNext() throws IOException {
+        Token token = peek();
+        return token != Token.END_OBJECT && token != Token.END_ARRAY && token != Token.END_DOCUMENT;
+    }
+
+    public void beginObject() throws IOException {
+        expect(Token.BEGIN_OBJECT);
+        push(EMPTY_OBJECT);
+    }
+
+    public void endObject() throws IOException {
+        expect(Token.END_OBJECT);
+        depth--;
+    }
+
+    public void beginArray() throws IOException {
+        expect(Token.BEGIN_ARRAY);
+        push(EMPTY_ARRAY);
+    }
+
+    public void endArray() throws IOException {
+        expect(Token.END_ARRAY);
+        depth--;
+    }
+
+    public String nextName() throws IOException {
+        expect(Token.NAME);
+        return readString();
+    }
+
+    /** A string value; numbers and booleans are returned as written. */
+    public String nextString() throws IOException {
+        Token token = peek();
+        peeked = null;
+        switch (token) {
+            case STRING:
+                return readString();
+            case NUMBER:
+            case BOOLEAN:
+                return readLiteral();
+            default:
+                throw syntaxError("expected a string but was " + token);
+        }
+    }
+
+    /**
+     * Hands a string value to sink in pieces of at most one buffer, so a
+     * long value (a whole review) is never materialized.
+     */
+    public void nextString(Consumer<String> sink) throws IOException {
+        if (peek() != Token.STRING) {
+            sink.accept(nextString());
+            return;
+        }
+        peeked = null;
+        while (true) {
+            int c = readStringPart();
+            if (scratch.length() > 0) {
+                sink.accept(scratch.toString());
+            }
+            if (c == '"') {
+                return;
+            }
+        }
+    }
+
+    /** A number, or a string holding one. */
+    public long nextLong() throws IOException {
+        String text = nextString();
+        try {
+            return Long.parseLong(text);
+        } catch (NumberFormatException e) {
+            try {
+                return (long) Double.parseDouble(text);
+            } catch (NumberFormatException notANumber) {
+                throw syntaxError("expected a number but was \"" + text + "\"");
+            }
+        }
+    }
+
+    public boolean nextBoolean() throws IOException {
+        Token token = peek();
+        if (token == Token.STRING) {
+            return Boolean.parseBoolean(nextString());
+        }
+        expect(Token.BOOLEAN);
+        return readLiteral().equals("true");
+    }
+
+    public void nextNull() throws IOException {
+        expect(Token.NULL);
+        readLiteral();
+    }
+
+    /** Skips the next value (including everything nested in it) or field name. */
+    public void skipValue() throws IOException {
+        int level = 0;
+        do {
+            Token token = peek();
+            peeked = null;
+            switch (token) {
+                case BEGIN_OBJECT:
+                    push(EMPTY_OBJECT);
+                    level++;
+                    break;
+                case BEGIN_ARRAY:
+                    push(EMPTY_ARRAY);
+                    level++;
+                    break;
+                case END_OBJECT:
+                case END_ARRAY:
+                    depth--;
+                    level--;
+                    break;
+                case NAME:
+                case STRING:
+                    skipString();
+                    break;
+                case NUMBER:
+                case BOOLEAN:
+                case NULL:
+                    readLiteral();
+                    break;
+                default:
+                    return; // END_DOCUMENT
+            }
+        } while (level > 0);
+    }
+
+    // ----------------------------- SCANNING -----------------------------
+
+    private Token valueToken(int c) throws IOException {
+        switch (c) {
+            case '{':
+                return Token.BEGIN_OBJECT;
+            case '[':
+                return Token.BEGIN_ARRAY;
+            case '"':
+                return Token.STRING;
+            case 't':
+            case 'f':
+                pos--;
+                return Token.BOOLEAN;
+            case 'n':
+                pos--;
+                return Token.NULL;
+            case -1:
+                throw syntaxError("unexpected end of input");
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    pos--;
+                    return Token.NUMBER;
+                }
+                throw syntaxError("unexpected character '" + (char) c + "'");
+        }
+    }
+
+    private void expect(Token expected) throws IOException {
+        Token token = peek();
+        if (token != expected) {
+            throw syntaxError("expected " + expected + " but was " + token);
+        }
+        peeked = null;
+    }
+
+    private void push(int scope) throws IOException {
+        if (depth + 1 == MAX_DEPTH) {
+            throw syntaxError("nested too deeply");
+        }
+        scopes[++depth] = scope;
+    }
+
+    private String readString() throws IOException {
+        StringBuilder value = new StringBuilder();
+        int c;
+        do {
+            c = readStringPart();
+            value.append(scratch);
+        } while (c != '"');
+        return value.toString();
+    }
+
+    private void skipString() throws IOException {
+        while (readStringPart() != '"') {
+            // decoded and dropped one buffer at a time
+        }
+    }
+
+    /**
+     * Decodes string content into scratch until the closing quote (returns '"')
+     * or until the buffer runs dry (returns 0; call again for the rest).
+     */
+    private int readStringPart() throws IOException {
+        scratch.setLength(0);
+        if (pos == limit && !fill()) {
+            throw syntaxError("unterminated string");
+        }
+        while (pos < limit) {
+            char c = buf[pos++];
+            if (c == '"') {
+                return '"';
+            }
+            if (c != '\\') {
+                scratch.append(c);
+                continue;
+            }
+            scratch.append(readEscape());
+        }
+        return 0;
+    }
+
+    private char readEscape() throws IOException {
+        int e = read();
+        switch (e) {
+            case 'n': return '\n';
+            case 'r': return '\r';
+            case 't': return '\t';
+            case 'b': return '\b';
+            case 'f': return '\f';
+            case '"':
+            case '\\':
+            case '/':
+                return (char) e;
+            case 'u':
+                int code = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(read(), 16);
+                    if (digit < 0) {
+                        throw syntaxError("bad \\u escape");
+                    }
+                    code = code * 16 + digit;
+                }
+                return (char) code;
+            default:
+                throw syntaxError("bad escape");
+        }
+    }
+
+    /** Number or true/false/null, as written. */
+    private String readLiteral() throws IOException {
+        scratch.setLength(0);
+        while (pos < limit || fill()) {
+            char c = buf[pos];
+            if (c == ',' || c == '}' || c == ']' || c == ':' || Character.isWhitespace(c)) {
+                break;
+            }
+            scratch.append(c);
+            pos++;
+        }
+        return scratch.toString();
+    }
+
+    private int nextNonWhitespace() throws IOException {
+        while (pos < limit || fill()) {
+            char c = buf[pos++];
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                return c;
+            }
+        }
+        return -1;
+    }
+
+    private int read() throws IOException {
+        if (pos == limit && !fill()) {
+            throw syntaxError("unexpected end of input");
+        }
+        return buf[pos++];
+    }
+
+    private boolean fill() throws IOException {
+        pos = 0;
+        limit = 0;
+        int n;
+        while ((n = in.read(buf)) == 0) {
+            // Reader contract allows 0; keep reading
+        }
+        if (n < 0) {
+            return false;
+        }
+        limit = n;
+        return true;
+    }
+
+    private MalformedJsonException syntaxError(String message) {
+        return new MalformedJsonException("Malformed JSON: " + message);
+    }
+}
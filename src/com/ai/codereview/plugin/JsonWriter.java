@@ -0,0 +1,293 @@
+package com.ai.codereview.plugin;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * JsonWriter
+ * ----------
+ * The one JSON encoder used for every request body.
+ * - Writes UTF-8 bytes straight into a reusable buffer, then the stream
+ * - Escapes through a 128-entry lookup table; non-ASCII is encoded, never escaped
+ * - Diffs are streamed into a string value without being materialized; their
+ *   bytes are checked as UTF-8 on the way and invalid sequences (a Latin-1
+ *   source file, a cut-off character) become U+FFFD, so the JSON stays valid
+ * - newline() ends a record, for NDJSON bodies
+ *
+ * Commas are inserted automatically. Not thread-safe; one writer per body.
+ */
+public class JsonWriter {
+
+    @FunctionalInterface
+    public interface Body {
+        void writeTo(JsonWriter json) throws IOException;
+    }
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+    private static final int MAX_DEPTH = 32;
+
+    /** Escape sequence per ASCII byte; null where the byte is written as-is. */
+    private static final byte[][] ESCAPES = new byte[128][];
+    static {
+        byte[] hex = "0123456789abcdef".getBytes();
+        for (int c = 0; c < 0x20; c++) {
+            ESCAPES[c] = new byte[]{'\\', 'u', '0', '0', hex[c >> 4], hex[c & 0x0F]};
+        }
+        ESCAPES['"'] = new byte[]{'\\', '"'};
+        ESCAPES['\\'] = new byte[]{'\\', '\\'};
+        ESCAPES['\b'] = new byte[]{'\\', 'b'};
+        ESCAPES['\f'] = new byte[]{'\\', 'f'};
+        ESCAPES['\n'] = new byte[]{'\\', 'n'};
+        ESCAPES['\r'] = new byte[]{'\\', 'r'};
+        ESCAPES['\t'] = new byte[]{'\\', 't'};
+    }
+
+    private final OutputStream out;
+    private final byte[] buf = new byte[BUFFER_SIZE];
+    private int count;
+
+    // Per nesting level: has a value been written yet (so the next one needs a comma)
+    private final boolean[] hasValue = new boolean[MAX_DEPTH];
+    private int depth;
+    private boolean afterName;
+
+    private static final byte[] REPLACEMENT = {(byte) 0xEF, (byte) 0xBF, (byte) 0xBD}; // U+FFFD
+
+    // Multi-byte UTF-8 sequence being checked in value(DiffSource)
+    private final byte[] sequence = new byte[4];
+    private int sequenceLength;
+    private int sequenceMissing;
+
+    private final OutputStream escaper = new OutputStream() {
+        @Override
+        public void write(int b) throws IOException {
+            putText(b & 0xFF);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            for (int i = off; i < off + len; i++) {
+                putText(b[i] & 0xFF);
+            }
+        }
+    };
+
+    public JsonWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    /** Encodes a small document into a byte array. */
+    public static byte[] toBytes(Body body) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        JsonWriter json = new JsonWriter(bytes);
+        body.writeTo(json);
+        json.flush();
+        return bytes.toByteArray();
+    }
+
+    public JsonWriter beginObject() throws IOException {
+        separator();
+        put('{');
+        depth++;
+        hasValue[depth] = false;
+        return this;
+    }
+
+    public JsonWriter endObject() throws IOException {
+        put('}');
+        depth--;
+        return this;
+    }
+
+    public JsonWriter name(String name) throws IOException {
+        separator();
+        putString(name);
+        put(':');
+        afterName = true;
+        return this;
+    }
+
+    public JsonWriter value(String value) throws IOException {
+        separator();
+        if (value == null) {
+            putAscii("null");
+        } else {
+            putString(value);
+        }
+        return this;
+    }
+
+    public JsonWriter value(long value) throws IOException {
+        separator();
+        putAscii(Long.toString(value));
+        return this;
+    }
+
+    public JsonWriter value(boolean value) throws IOException {
+        separator();
+        putAscii(value ? "true" : "false");
+        return this;
+    }
+
+    /**
+     * Streams text into one string value, escaping it on the way. Valid
+     * UTF-8 multi-byte sequences pass through unchanged; anything else is
+     * replaced by U+FFFD.
+     */
+    public JsonWriter value(DiffSource text) throws IOException {
+        separator();
+        put('"');
+        sequenceMissing = 0;
+        text.writeTo(escaper);
+        if (sequenceMissing > 0) {
+            sequenceMissing = 0;
+            putReplacement(); // text ended inside a character
+        }
+        put('"');
+        return this;
+    }
+
+    /** Ends a top-level record with '\n' (NDJSON). */
+    public JsonWriter newline() throws IOException {
+        put('\n');
+        hasValue[0] = false;
+        return this;
+    }
+
+    /** Writes out the buffer without closing or flushing the underlying stream. */
+    public void flush() throws IOException {
+        if (count > 0) {
+            out.write(buf, 0, count);
+            count = 0;
+        }
+    }
+
+    // ----------------------------- ENCODING -----------------------------
+
+    private void separator() throws IOException {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        if (hasValue[depth] && depth > 0) {
+            put(',');
+        }
+        hasValue[depth] = true;
+    }
+
+    private void putString(String s) throws IOException {
+        put('"');
+        int length = s.length();
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                putEscaped(c);
+            } else if (c < 0x800) {
+                ensure(2);
+                buf[count++] = (byte) (0xC0 | (c >> 6));
+                buf[count++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                ensure(4);
+                buf[count++] = (byte) (0xF0 | (cp >> 18));
+                buf[count++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                buf[count++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                buf[count++] = (byte) (0x80 | (cp & 0x3F));
+            } else {
+                if (Character.isSurrogate(c)) {
+                    c = '\uFFFD'; // unpaired surrogate: not encodable as UTF-8
+                }
+                ensure(3);
+                buf[count++] = (byte) (0xE0 | (c >> 12));
+                buf[count++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buf[count++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        put('"');
+    }
+
+    /** One byte of value(DiffSource) text: ASCII is escaped, multi-byte sequences are validated. */
+    private void putText(int b) throws IOException {
+        if (sequenceMissing == 0) {
+            if (b < 0x80) {
+                putEscaped(b);
+                return;
+            }
+            int missing = b >= 0xC2 && b <= 0xDF ? 1
+                    : b >= 0xE0 && b <= 0xEF ? 2
+                    : b >= 0xF0 && b <= 0xF4 ? 3
+                    : 0;
+            if (missing == 0) {
+                putReplacement(); // stray continuation byte or invalid lead byte
+                return;
+            }
+            sequence[0] = (byte) b;
+            sequenceLength = 1;
+            sequenceMissing = missing;
+            return;
+        }
+
+        // Second byte ranges exclude overlong forms, surrogates and code points above U+10FFFF
+        int low = 0x80;
+        int high = 0xBF;
+        if (sequenceLength == 1) {
+            switch (sequence[0] & 0xFF) {
+                case 0xE0: low = 0xA0; break;
+                case 0xED: high = 0x9F; break;
+                case 0xF0: low = 0x90; break;
+                case 0xF4: high = 0x8F; break;
+                default: break;
+            }
+        }
+        if (b < low || b > high) {
+            sequenceMissing = 0;
+            putReplacement();
+            putText(b); // may start the next character
+            return;
+        }
+
+        sequence[sequenceLength++] = (byte) b;
+        if (--sequenceMissing == 0) {
+            ensure(sequenceLength);
+            System.arraycopy(sequence, 0, buf, count, sequenceLength);
+            count += sequenceLength;
+        }
+    }
+
+    private void putReplacement() throws IOException {
+        ensure(REPLACEMENT.length);
+        System.arraycopy(REPLACEMENT, 0, buf, count, REPLACEMENT.length);
+        count += REPLACEMENT.length;
+    }
+
+    private void putEscaped(int b) throws IOException {
+        byte[] escape = b < 0x80 ? ESCAPES[b] : null;
+        if (escape == null) {
+            ensure(1);
+            buf[count++] = (byte) b;
+        } else {
+            ensure(escape.length);
+            System.arraycopy(escape, 0, buf, count, escape.length);
+            count += escape.length;
+        }
+    }
+
+    private void putAscii(String s) throws IOException {
+        ensure(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            buf[count++] = (byte) s.charAt(i);
+        }
+    }
+
+    private void put(char c) throws IOException {
+        ensure(1);
+        buf[count++] = (byte) c;
+    }
+
+    private void ensure(int n) throws IOException {
+        if (count + n > buf.length) {
+            flush();
+        }
+    }
+}
@@ -23,58 +23,107 @@ public class LoginPanel {
         Text passTxt = new Text(loginShell, SWT.BORDER | SWT.PASSWORD);
         passTxt.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false));
 
-        Button loginBtn = new Button(loginShell, SWT.PUSH);
+        Composite buttons = new Composite(loginShell, SWT.NONE);
+        buttons.setLayout(new RowLayout());
+        buttons.setLayoutData(new GridData(SWT.CENTER, SWT.CENTER, true, false, 2, 1));
+
+        Button loginBtn = new Button(buttons, SWT.PUSH);
         loginBtn.setText("Login");
-        loginBtn.setLayoutData(new GridData(SWT.CENTER, SWT.CENTER, true, false, 2, 1));
+
+        // Shown while the login request runs; closing the dialog cancels it too
+        Button cancelBtn = new Button(buttons, SWT.PUSH);
+        cancelBtn.setText("Cancel");
+        cancelBtn.setVisible(false);
+
+        Label status = new Label(loginShell, SWT.NONE);
+        status.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false, 2, 1));
+
+        BackendJob<?>[] running = new BackendJob<?>[1];
 
         loginBtn.addListener(SWT.Selection, e -> {
             String email = emailTxt.getText().trim();
             String pass = passTxt.getText().trim();
 
-            String token = AuthClient.login(email, pass);
+            // The request runs as a Job so the workbench stays responsive
+            BackendJob<String> job = new BackendJob<>("Logging in", monitor -> {
+                monitor.subTask("Contacting the backend...");
+                return AuthClient.login(email, pass);
+            }, token -> {
+                if (!loginShell.isDisposed()) {
+                    onLogin(loginShell, token);
+                }
+            });
+            job.whenFinished(() -> {
+                running[0] = null;
+                if (!loginShell.isDisposed()) {
+                    loginBtn.setEnabled(true);
+                    cancelBtn.setVisible(false);
+                    status.setText("");
+                }
+            });
+
+            running[0] = job;
+            loginBtn.setEnabled(false);
+            cancelBtn.setVisible(true);
+            status.setText("⏳ Logging in...");
+            job.schedule();
+        });
 
-            if (token == null) {
-                MessageDialog.openError(
-                        loginShell,       // use loginShell, not parent
-                        "Login Failed",
-                        "Invalid email or password."
-                );
-                return;
+        cancelBtn.addListener(SWT.Selection, e -> {
+            if (running[0] != null) {
+                running[0].cancel();
             }
+        });
+        loginShell.addListener(SWT.Dispose, e -> {
+            if (running[0] != null) {
+                running[0].cancel();
+            }
+        });
 
-            // Save token
-            AuthManager.saveToken(token);
+        loginShell.setSize(350, 220);
+        loginShell.open();
+    }
 
-            // Show success message
-            MessageDialog.openInformation(
-                    loginShell,
-                    "Login Success",
-                    "🔐 Login Successful!"
+    /** Back on the UI thread with the login result. */
+    private static void onLogin(Shell loginShell, String token) {
+        if (token == null) {
+            MessageDialog.openError(
+                    loginShell,       // use loginShell, not parent
+                    "Login Failed",
+                    "Invalid email or password."
             );
-
-            // --- Notify AIReviewPanel (UI thread safe) ---
-            Display.getDefault().asyncExec(() -> {
-                try {
-                    IWorkbenchPage page = PlatformUI.getWorkbench()
-                            .getActiveWorkbenchWindow()
-                            .getActivePage();
-
-                    if (page != null) {
-                        var view = page.findView(AIReviewPanel.ID);
-                        if (view instanceof AIReviewPanel panel) {
-                            panel.refreshAfterLogin();   // 🔥 instant refresh
-                        }
+            return;
+        }
+
+        // Save token
+        AuthManager.saveToken(token);
+
+        // Show success message
+        MessageDialog.openInformation(
+                loginShell,
+                "Login Success",
+                "🔐 Login Successful!"
+        );
+
+        // --- Notify AIReviewPanel (UI thread safe) ---
+        Display.getDefault().asyncExec(() -> {
+            try {
+                IWorkbenchPage page = PlatformUI.getWorkbench()
+                        .getActiveWorkbenchWindow()
+                        .getActivePage();
+
+                if (page != null) {
+                    var view = page.findView(AIReviewPanel.ID);
+                    if (view instanceof AIReviewPanel panel) {
+                        panel.refreshAfterLogin();   // 🔥 instant refresh
                     }
-                } catch (Exception ex) {
-                    ex.printStackTrace();
                 }
-            });
-
-            // close login window
-            loginShell.close();
+            } catch (Exception ex) {
+                ex.printStackTrace();
+            }
         });
 
-        loginShell.setSize(350, 200);
-        loginShell.open();
+        // close login window
+        loginShell.close();
     }
 }
@@ -0,0 +1,99 @@
+package com.ai.codereview.plugin;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+
+/**
+ * NormalizingDigestOutputStream
+ * -----------------------------
+ * Hashes a formatted diff the way a rebase would not change it:
+ * - "index abc..def" lines are dropped (blob ids change with any other edit)
+ * Everything else, hunk line numbers included, is hashed byte for byte: a
+ * review refers to lines, so a diff whose lines moved needs a new one.
+ */
+public class NormalizingDigestOutputStream extends OutputStream {
+
+    private static final byte[] INDEX_PREFIX = "index ".getBytes();
+
+    private enum Mode { LINE_START, PREFIX, PASS, SKIP }
+
+    private final MessageDigest digest;
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream(128);
+    private Mode mode = Mode.LINE_START;
+
+    public NormalizingDigestOutputStream(MessageDigest digest) {
+        this.digest = digest;
+    }
+
+    @Override
+    public void write(int b) {
+        switch (mode) {
+            case LINE_START:
+                if (b == INDEX_PREFIX[0]) {
+                    mode = Mode.PREFIX;
+                    pending.write(b);
+                } else {
+                    mode = Mode.PASS;
+                    digest.update((byte) b);
+                }
+                break;
+
+            case PREFIX:
+                pending.write(b);
+                int n = pending.size();
+                if (b != INDEX_PREFIX[n - 1]) {
+                    digest.update(pending.toByteArray());
+                    pending.reset();
+                    mode = Mode.PASS;
+                } else if (n == INDEX_PREFIX.length) {
+                    pending.reset();
+                    mode = Mode.SKIP;
+                }
+                break;
+
+            case PASS:
+                digest.update((byte) b);
+                break;
+
+            case SKIP:
+                break;
+        }
+
+        if (b == '\n') {
+            mode = Mode.LINE_START;
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        int end = off + len;
+        while (off < end) {
+            if (mode != Mode.PASS && mode != Mode.SKIP) {
+                write(b[off++]);
+                continue;
+            }
+            // Rest of an ordinary line: hash (or skip) it in one call
+            int nl = off;
+            while (nl < end && b[nl] != '\n') {
+                nl++;
+            }
+            int lineEnd = nl < end ? nl + 1 : end;
+            if (mode == Mode.PASS) {
+                digest.update(b, off, lineEnd - off);
+            }
+            if (nl < end) {
+                mode = Mode.LINE_START;
+            }
+            off = lineEnd;
+        }
+    }
+
+    @Override
+    public void close() {
+        if (pending.size() > 0) {
+            digest.update(pending.toByteArray());
+            pending.reset();
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.ai.codereview.plugin;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.core.runtime.preferences.InstanceScope;
+import org.osgi.service.prefs.Preferences;
+
+/**
+ * PluginSettings
+ * --------------
+ * Tunables for the review pipeline, stored next to the auth token
+ * in the plugin's instance preferences. Every value has a default.
+ */
+public class PluginSettings {
+
+    private static final String NODE = "com.ai.codereview.plugin";
+
+    private static final String KEY_COMPRESSION_ENABLED = "compression_enabled";
+    private static final String KEY_COMPRESSION_THRESHOLD = "compression_threshold_bytes";
+    private static final String KEY_CHUNK_BUDGET = "review_chunk_budget_bytes";
+    private static final String KEY_TOKEN_BUDGET = "review_token_budget";
+    private static final String KEY_REVIEW_CONCURRENCY = "review_concurrency";
+    private static final String KEY_CACHE_MAX_BYTES = "review_cache_max_bytes";
+    private static final String KEY_CACHE_MAX_ENTRIES = "review_cache_max_entries";
+    private static final String KEY_COMMIT_QUIET_WINDOW = "commit_quiet_window_ms";
+    private static final String KEY_REVIEW_QUEUE_CAPACITY = "review_queue_capacity";
+    private static final String KEY_CATCH_UP_LIMIT = "catch_up_commit_limit";
+    private static final String KEY_EXCLUDE_GLOBS = "review_exclude_globs";
+    private static final String KEY_MAX_FILE_BYTES = "review_max_file_bytes";
+    private static final String KEY_IGNORE_WHITESPACE = "review_ignore_whitespace";
+    private static final String KEY_LOG_RING_LINES = "log_ring_lines";
+    private static final String KEY_LOG_SPILL_ENABLED = "log_spill_enabled";
+    private static final String KEY_LOG_SEGMENT_BYTES = "log_segment_bytes";
+    private static final String KEY_LOG_MAX_SEGMENTS = "log_max_segments";
+    private static final String KEY_TUNE_WINDOW_CACHE = "tune_jgit_window_cache";
+    private static final String KEY_PACKED_GIT_LIMIT = "jgit_packed_git_limit_bytes";
+    private static final String KEY_DELTA_BASE_CACHE_LIMIT = "jgit_delta_base_cache_bytes";
+
+    private static final String DEFAULT_EXCLUDE_GLOBS =
+            "**/package-lock.json,**/yarn.lock,**/pnpm-lock.yaml,**/*.lock,"
+            + "**/*.min.js,**/*.min.css,**/*.map,**/node_modules/**,**/vendor/**";
+
+    public static boolean isCompressionEnabled() {
+        return prefs().getBoolean(KEY_COMPRESSION_ENABLED, true);
+    }
+
+    /** Request bodies smaller than this are sent uncompressed. */
+    public static int getCompressionThreshold() {
+        return prefs().getInt(KEY_COMPRESSION_THRESHOLD, 8 * 1024);
+    }
+
+    /** Largest diff sent in one review request; bigger commits are split. */
+    public static int getChunkBudgetBytes() {
+        return prefs().getInt(KEY_CHUNK_BUDGET, 64 * 1024);
+    }
+
+    /** Estimated model tokens a commit diff is compacted to (fewer context lines). */
+    public static int getReviewTokenBudget() {
+        return prefs().getInt(KEY_TOKEN_BUDGET, 16 * 1024);
+    }
+
+    /** Maximum number of chunk reviews in flight at once. */
+    public static int getReviewConcurrency() {
+        return Math.max(1, prefs().getInt(KEY_REVIEW_CONCURRENCY, 4));
+    }
+
+    /** Disk budget for cached review results. */
+    public static long getReviewCacheMaxBytes() {
+        return prefs().getLong(KEY_CACHE_MAX_BYTES, 32L * 1024 * 1024);
+    }
+
+    public static int getReviewCacheMaxEntries() {
+        return prefs().getInt(KEY_CACHE_MAX_ENTRIES, 5000);
+    }
+
+    /** Git events closer together than this are coalesced into one review. */
+    public static long getCommitQuietWindowMs() {
+        return prefs().getLong(KEY_COMMIT_QUIET_WINDOW, 200);
+    }
+
+    /** Pending reviews kept at most; the oldest is dropped beyond this. */
+    public static int getReviewQueueCapacity() {
+        return Math.max(1, prefs().getInt(KEY_REVIEW_QUEUE_CAPACITY, 8));
+    }
+
+    /** Most commits reviewed in one catch-up; older ones are skipped. */
+    public static int getCatchUpCommitLimit() {
+        return Math.max(1, prefs().getInt(KEY_CATCH_UP_LIMIT, 20));
+    }
+
+    /** Comma-separated path globs never sent for review. */
+    public static List<String> getExcludedPathGlobs() {
+        String globs = prefs().get(KEY_EXCLUDE_GLOBS, DEFAULT_EXCLUDE_GLOBS);
+        List<String> result = new ArrayList<>();
+        for (String glob : globs.split(",")) {
+            if (!glob.isBlank()) {
+                result.add(glob.trim());
+            }
+        }
+        return result;
+    }
+
+    /** Files bigger than this (old or new version) are skipped. */
+    public static long getMaxFileBytes() {
+        return prefs().getLong(KEY_MAX_FILE_BYTES, 256L * 1024);
+    }
+
+    /** Files whose only changes are whitespace are left out of reviews; the diffs sent keep whitespace. */
+    public static boolean isIgnoreWhitespaceEnabled() {
+        return prefs().getBoolean(KEY_IGNORE_WHITESPACE, true);
+    }
+
+    /** Log lines kept in memory; older lines are only on disk (if spilling). */
+    public static int getLogRingLines() {
+        return Math.max(100, prefs().getInt(KEY_LOG_RING_LINES, 5000));
+    }
+
+    public static boolean isLogSpillEnabled() {
+        return prefs().getBoolean(KEY_LOG_SPILL_ENABLED, true);
+    }
+
+    /** A new log segment file is started past this size. */
+    public static long getLogSegmentBytes() {
+        return prefs().getLong(KEY_LOG_SEGMENT_BYTES, 1024L * 1024);
+    }
+
+    /** Oldest log segments are deleted beyond this count. */
+    public static int getLogMaxSegments() {
+        return Math.max(1, prefs().getInt(KEY_LOG_MAX_SEGMENTS, 16));
+    }
+
+    /**
+     * JGit's window cache is process-wide (EGit uses it too), so resizing it
+     * is opt-in; by default the IDE's own settings are left alone.
+     */
+    public static boolean isWindowCacheTuningEnabled() {
+        return prefs().getBoolean(KEY_TUNE_WINDOW_CACHE, false);
+    }
+
+    public static long getPackedGitLimitBytes() {
+        return prefs().getLong(KEY_PACKED_GIT_LIMIT, 64L * 1024 * 1024);
+    }
+
+    public static int getDeltaBaseCacheLimitBytes() {
+        return prefs().getInt(KEY_DELTA_BASE_CACHE_LIMIT, 32 * 1024 * 1024);
+    }
+
+    private static Preferences prefs() {
+        return InstanceScope.INSTANCE.getNode(NODE);
+    }
+}
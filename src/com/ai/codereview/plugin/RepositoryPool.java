@@ -0,0 +1,98 @@
+package com.ai.codereview.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.storage.file.WindowCacheConfig;
+
+/**
+ * RepositoryPool
+ * --------------
+ * One open JGit Repository per .git directory, shared and reference counted.
+ * - Config and pack indexes are read once, object caches stay warm
+ * - Every acquire() must be paired with a release()
+ * - The repository is closed when the last reference is released
+ */
+public class RepositoryPool {
+
+    private static class Entry {
+        final Repository repo;
+        int refs;
+
+        Entry(Repository repo) {
+            this.repo = repo;
+        }
+    }
+
+    private static final Map<String, Entry> repos = new HashMap<>();
+    private static boolean windowCacheInstalled;
+
+    public static synchronized Repository acquire(File gitDir) throws IOException {
+        installWindowCache();
+
+        String key = keyOf(gitDir);
+        Entry entry = repos.get(key);
+        if (entry == null) {
+            entry = new Entry(new FileRepositoryBuilder()
+                    .setGitDir(gitDir)
+                    .setMustExist(true)
+                    .build());
+            repos.put(key, entry);
+        }
+        entry.refs++;
+        return entry.repo;
+    }
+
+    public static synchronized void release(Repository repo) {
+        if (repo == null) {
+            return;
+        }
+        String key = keyOf(repo.getDirectory());
+        Entry entry = repos.get(key);
+        if (entry == null || entry.repo != repo) {
+            return;
+        }
+        if (--entry.refs <= 0) {
+            repos.remove(key);
+            entry.repo.close();
+        }
+    }
+
+    /** Called on plugin stop: closes everything regardless of references. */
+    public static synchronized void closeAll() {
+        repos.values().forEach(e -> e.repo.close());
+        repos.clear();
+    }
+
+    private static String keyOf(File gitDir) {
+        try {
+            return gitDir.getCanonicalPath();
+        } catch (IOException e) {
+            return gitDir.getAbsolutePath();
+        }
+    }
+
+    /**
+     * Sizes JGit's shared pack window and delta-base caches once. This
+     * replaces the cache for the whole IDE, so it only happens when the
+     * user opted in (tune_jgit_window_cache).
+     */
+    private static void installWindowCache() {
+        if (windowCacheInstalled || !PluginSettings.isWindowCacheTuningEnabled()) {
+            return;
+        }
+        windowCacheInstalled = true;
+
+        WindowCacheConfig cfg = new WindowCacheConfig();
+        cfg.setPackedGitLimit(PluginSettings.getPackedGitLimitBytes());
+        cfg.setPackedGitWindowSize(64 * 1024);
+        cfg.setPackedGitMMAP(false);
+        cfg.setDeltaBaseCacheLimit(PluginSettings.getDeltaBaseCacheLimitBytes());
+        cfg.setStreamFileThreshold(16 * 1024 * 1024);
+        cfg.install();
+    }
+}
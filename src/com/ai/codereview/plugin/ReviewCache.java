@@ -0,0 +1,332 @@
+package com.ai.codereview.plugin;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ReviewCache
+ * -----------
+ * Content-addressed review results on disk, in the plugin state location.
+ * - Key = SHA-256 of the normalized diff + orgId + backend version
+ * - Amend / rebase / cherry-pick / branch switch reuse earlier results, as
+ *   long as the changed lines did not move (line numbers are part of the key,
+ *   so cached text and findings never point at stale lines)
+ * - Hashing formats the diff once; small diffs are kept from that pass so
+ *   the request does not format them again
+ * - Least recently used entries are evicted past a size and count budget
+ *
+ * Two files per entry: the review text, whose last-modified time records
+ * the last use (so the LRU order survives restarts), and the findings as
+ * NDJSON, so a cache hit can restore markers. Text without findings beside
+ * it is from an older format and dropped.
+ */
+public class ReviewCache {
+
+    private static final String DIR_NAME = "review-cache";
+    private static final String SUFFIX = ".review";
+    private static final String FINDINGS_SUFFIX = ".findings";
+    private static final String VERSION_FILE = "backend.version";
+
+    private static Path dir;
+    private static String backendVersion = "unknown";
+
+    // Access-ordered: iteration starts at the least recently used key
+    private static final LinkedHashMap<String, Long> index = new LinkedHashMap<>(256, 0.75f, true);
+    private static long totalBytes;
+
+    /** A diff's cache key, and the diff itself when it was small enough to keep for sending. */
+    public static class Key {
+        private final String value;
+        private final byte[] kept;
+        private final long length;
+
+        Key(String value, byte[] kept, long length) {
+            this.value = value;
+            this.kept = kept;
+            this.length = length;
+        }
+
+        /** The key, or null if the cache is unavailable. */
+        public String getValue() {
+            return value;
+        }
+
+        /** Formatted size of the diff in bytes, or -1 if it was not formatted. */
+        public long getDiffLength() {
+            return length;
+        }
+
+        /** What to send: the bytes kept while hashing if there are any, else diff itself. */
+        public DiffSource source(DiffSource diff) {
+            return kept != null ? out -> out.write(kept) : diff;
+        }
+    }
+
+    /**
+     * Hashes the diff into its cache key. Diffs of at most keepBytes are kept
+     * from the same pass (see Key.source), so they are formatted only once.
+     */
+    public static Key keyFor(DiffSource diff, int orgId, int keepBytes) {
+        if (!ensureLoaded()) {
+            return new Key(null, null, -1);
+        }
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            KeepingOutputStream keep = new KeepingOutputStream(keepBytes);
+            try (NormalizingDigestOutputStream out = new NormalizingDigestOutputStream(sha)) {
+                diff.writeTo(new TeeOutputStream(out, keep));
+            }
+            sha.update(("\0" + orgId + "\0" + currentBackendVersion()).getBytes(StandardCharsets.UTF_8));
+            return new Key(HexFormat.of().formatHex(sha.digest()), keep.kept(), keep.length);
+        } catch (IOException | NoSuchAlgorithmException e) {
+            return new Key(null, null, -1);
+        }
+    }
+
+    public static synchronized String get(String key) {
+        if (key == null || !index.containsKey(key)) {
+            return null;
+        }
+        Path file = dir.resolve(key + SUFFIX);
+        try {
+            String result = Files.readString(file, StandardCharsets.UTF_8);
+            index.get(key); // mark as most recently used
+            file.toFile().setLastModified(System.currentTimeMillis());
+            return result;
+        } catch (IOException e) {
+            remove(key);
+            return null;
+        }
+    }
+
+    /** The findings stored with a cached review; empty if there are none or the entry is gone. */
+    public static synchronized List<ReviewFinding> getFindings(String key) {
+        List<ReviewFinding> findings = new ArrayList<>();
+        if (key == null || !index.containsKey(key)) {
+            return findings;
+        }
+        try (InputStream in = Files.newInputStream(dir.resolve(key + FINDINGS_SUFFIX))) {
+            JsonReader json = new JsonReader(in);
+            while (json.peek() != JsonReader.Token.END_DOCUMENT) {
+                ReviewFinding finding = ReviewFinding.read(json);
+                if (finding != null) {
+                    findings.add(finding);
+                }
+            }
+        } catch (IOException e) {
+            remove(key);
+            findings.clear();
+        }
+        return findings;
+    }
+
+    public static synchronized void put(String key, String result, List<ReviewFinding> findings) {
+        if (key == null || !ensureLoaded()) {
+            return;
+        }
+        byte[] bytes = result.getBytes(StandardCharsets.UTF_8);
+        byte[] findingBytes;
+        try {
+            findingBytes = JsonWriter.toBytes(json -> {
+                for (ReviewFinding finding : findings) {
+                    finding.write(json);
+                    json.newline();
+                }
+            });
+            // Findings first: text without them is treated as a broken entry
+            write(key + FINDINGS_SUFFIX, findingBytes);
+            write(key + SUFFIX, bytes);
+        } catch (IOException e) {
+            ReviewConsole.show("⚠️ Review cache write failed: " + e.getMessage());
+            return;
+        }
+
+        long size = bytes.length + findingBytes.length;
+        Long previous = index.put(key, size);
+        totalBytes += size - (previous == null ? 0 : previous);
+        evict();
+    }
+
+    private static void write(String name, byte[] bytes) throws IOException {
+        Path tmp = Files.createTempFile(dir, name, ".tmp");
+        Files.write(tmp, bytes);
+        Files.move(tmp, dir.resolve(name), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Remembers the backend version reported by the server; part of every key.
+     * Returns true if it changed: keys computed before then are stale, so the
+     * response that reported it must not be stored under one of them.
+     */
+    public static synchronized boolean noteBackendVersion(String version) {
+        if (version == null || version.isBlank() || version.trim().equals(backendVersion) || !ensureLoaded()) {
+            return false;
+        }
+        backendVersion = version.trim();
+        try {
+            Files.writeString(dir.resolve(VERSION_FILE), backendVersion, StandardCharsets.UTF_8);
+        } catch (IOException ignored) {}
+        return true;
+    }
+
+    public static synchronized void clear() {
+        if (!ensureLoaded()) {
+            return;
+        }
+        for (String key : index.keySet().toArray(new String[0])) {
+            remove(key);
+        }
+    }
+
+    // ----------------------------- INTERNALS -----------------------------
+
+    private static synchronized String currentBackendVersion() {
+        return backendVersion;
+    }
+
+    private static synchronized boolean ensureLoaded() {
+        if (dir != null) {
+            return true;
+        }
+        Activator plugin = Activator.getDefault();
+        if (plugin == null) {
+            return false;
+        }
+
+        File root = plugin.getStateLocation().append(DIR_NAME).toFile();
+        if (!root.isDirectory() && !root.mkdirs()) {
+            return false;
+        }
+        dir = root.toPath();
+
+        File[] orphans = root.listFiles((d, name) -> name.endsWith(FINDINGS_SUFFIX));
+        if (orphans != null) {
+            for (File f : orphans) {
+                String key = f.getName().substring(0, f.getName().length() - FINDINGS_SUFFIX.length());
+                if (!new File(root, key + SUFFIX).isFile()) {
+                    f.delete(); // the text write never happened
+                }
+            }
+        }
+
+        File[] files = root.listFiles((d, name) -> name.endsWith(SUFFIX));
+        if (files != null) {
+            // Oldest first, so the access-ordered index starts at the LRU entry
+            Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+            for (File f : files) {
+                String key = f.getName().substring(0, f.getName().length() - SUFFIX.length());
+                File findings = new File(root, key + FINDINGS_SUFFIX);
+                if (!findings.isFile()) {
+                    f.delete(); // written before findings were cached
+                    continue;
+                }
+                index.put(key, f.length() + findings.length());
+                totalBytes += f.length() + findings.length();
+            }
+        }
+
+        try {
+            Path version = dir.resolve(VERSION_FILE);
+            if (Files.exists(version)) {
+                backendVersion = Files.readString(version, StandardCharsets.UTF_8).trim();
+            }
+        } catch (IOException ignored) {}
+
+        evict();
+        return true;
+    }
+
+    private static void evict() {
+        long maxBytes = PluginSettings.getReviewCacheMaxBytes();
+        int maxEntries = PluginSettings.getReviewCacheMaxEntries();
+
+        Iterator<Map.Entry<String, Long>> lru = index.entrySet().iterator();
+        while ((totalBytes > maxBytes || index.size() > maxEntries) && lru.hasNext()) {
+            Map.Entry<String, Long> eldest = lru.next();
+            totalBytes -= eldest.getValue();
+            lru.remove();
+            dir.resolve(eldest.getKey() + SUFFIX).toFile().delete();
+            dir.resolve(eldest.getKey() + FINDINGS_SUFFIX).toFile().delete();
+        }
+    }
+
+    /** Writes to both streams. */
+    private static class TeeOutputStream extends OutputStream {
+        private final OutputStream first;
+        private final OutputStream second;
+
+        TeeOutputStream(OutputStream first, OutputStream second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            first.write(b);
+            second.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            first.write(b, off, len);
+            second.write(b, off, len);
+        }
+    }
+
+    /** Counts what is written and keeps it while it stays within the limit. */
+    private static class KeepingOutputStream extends OutputStream {
+        private ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private final int limit;
+        long length;
+
+        KeepingOutputStream(int limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public void write(int b) {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            length += len;
+            if (buffer != null && length > limit) {
+                buffer = null; // too large: it is streamed when sent
+            }
+            if (buffer != null) {
+                buffer.write(b, off, len);
+            }
+        }
+
+        byte[] kept() {
+            return buffer == null ? null : buffer.toByteArray();
+        }
+    }
+
+    private static void remove(String key) {
+        Long size = index.remove(key);
+        if (size != null) {
+            totalBytes -= size;
+        }
+        dir.resolve(key + SUFFIX).toFile().delete();
+        dir.resolve(key + FINDINGS_SUFFIX).toFile().delete();
+    }
+}
@@ -0,0 +1,37 @@
+package com.ai.codereview.plugin;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * ReviewChunk
+ * -----------
+ * One slice of a commit diff that fits the review size budget:
+ * either several whole files, or a run of hunks from one large file.
+ */
+public class ReviewChunk implements DiffSource {
+
+    private final int index;
+    private final String label;
+    private final DiffSource source;
+
+    public ReviewChunk(int index, String label, DiffSource source) {
+        this.index = index;
+        this.label = label;
+        this.source = source;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    /** Human readable description, e.g. "src/A.java, src/B.java" or "src/Big.java (hunks 4-9)". */
+    public String getLabel() {
+        return label;
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        source.writeTo(out);
+    }
+}
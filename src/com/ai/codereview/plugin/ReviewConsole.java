@@ -1,13 +1,34 @@
 package com.ai.codereview.plugin;
 
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import org.eclipse.ui.console.*;
 import org.eclipse.swt.widgets.Display;
+import org.eclipse.ui.IViewPart;
+import org.eclipse.ui.IWorkbenchPage;
+import org.eclipse.ui.IWorkbenchWindow;
 import org.eclipse.ui.PlatformUI;
 
+/**
+ * ReviewConsole
+ * -------------
+ * Output shared by the Eclipse console and the AI panel.
+ * - show()/showFragment() may be called from any thread; text is queued
+ * - The UI thread drains the queue at most once per frame: one write to
+ *   a long-lived console stream, one append to the panel
+ * - The panel is looked up, never activated, so reviews don't steal focus
+ */
 public class ReviewConsole {
 
+    /** Minimum delay between two UI flushes; bursts in between are merged. */
+    private static final int FRAME_MS = 33;
+
     private static MessageConsole console;
-    private static StringBuilder logBuffer = new StringBuilder();
+    private static MessageConsoleStream consoleStream;
+
+    private static final ConcurrentLinkedQueue<String> pending = new ConcurrentLinkedQueue<>();
+    private static final AtomicBoolean flushScheduled = new AtomicBoolean();
 
     private static MessageConsole getConsole() {
         if (console == null) {
@@ -18,41 +39,91 @@ public class ReviewConsole {
     }
 
     public static void show(String message) {
+        enqueue(message + "\n");
+    }
 
-        synchronized (logBuffer) {
-            logBuffer.append(message).append("\n");
-        }
-
-        Display.getDefault().asyncExec(() -> {
-
-            // Write to Eclipse console
-            try {
-                MessageConsoleStream out = getConsole().newMessageStream();
-                out.println(message);
-                out.close();
-            } catch (Exception ignored) {}
-
-            // Write to AI panel
-            try {
-                AIReviewPanel panel = (AIReviewPanel) PlatformUI.getWorkbench()
-                        .getActiveWorkbenchWindow()
-                        .getActivePage()
-                        .showView(AIReviewPanel.ID);
-
-                panel.addMessage(message);
-            } catch (Exception ignored) {}
-        });
+    /**
+     * Appends a piece of streamed text to the current line (no newline).
+     * Call endFragments() once the stream is complete.
+     */
+    public static void showFragment(String fragment) {
+        enqueue(fragment);
     }
 
-    public static String getLogHistory() {
-        return logBuffer.toString();
+    /** Terminates the line started by showFragment(). */
+    public static void endFragments() {
+        show("");
     }
 
     public static void clearHistory() {
-        logBuffer.setLength(0);
+        pending.clear();
+        ReviewLog.clear();
     }
 
     public static void clearConsoleView() {
         getConsole().clearConsole();
     }
+
+    // ----------------------------- BATCHING -----------------------------
+
+    private static void enqueue(String text) {
+        ReviewLog.write(text);
+        pending.add(text);
+
+        if (flushScheduled.compareAndSet(false, true)) {
+            try {
+                Display display = Display.getDefault();
+                display.asyncExec(() -> display.timerExec(FRAME_MS, ReviewConsole::flush));
+            } catch (Exception e) {
+                flushScheduled.set(false); // workbench shutting down
+            }
+        }
+    }
+
+    /** Runs on the UI thread. */
+    private static void flush() {
+        // Cleared first: text queued while we drain schedules the next frame
+        flushScheduled.set(false);
+
+        StringBuilder batch = new StringBuilder();
+        String text;
+        while ((text = pending.poll()) != null) {
+            batch.append(text);
+        }
+        if (batch.length() == 0) {
+            return;
+        }
+        String output = batch.toString();
+
+        // Write to Eclipse console
+        try {
+            if (consoleStream == null || consoleStream.isClosed()) {
+                consoleStream = getConsole().newMessageStream();
+            }
+            consoleStream.print(output);
+        } catch (Exception ignored) {}
+
+        // Write to AI panel
+        try {
+            AIReviewPanel panel = findPanel();
+            if (panel != null) {
+                panel.append(output);
+            }
+        } catch (Exception ignored) {}
+    }
+
+    /** The open panel; opened without activation if it isn't yet (it then loads the history itself). */
+    private static AIReviewPanel findPanel() throws Exception {
+        IWorkbenchWindow window = PlatformUI.getWorkbench().getActiveWorkbenchWindow();
+        IWorkbenchPage page = window == null ? null : window.getActivePage();
+        if (page == null) {
+            return null;
+        }
+        IViewPart view = page.findView(AIReviewPanel.ID);
+        if (view == null) {
+            page.showView(AIReviewPanel.ID, null, IWorkbenchPage.VIEW_VISIBLE);
+            return null;
+        }
+        return view instanceof AIReviewPanel ? (AIReviewPanel) view : null;
+    }
 }
@@ -0,0 +1,178 @@
+package com.ai.codereview.plugin;
+
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * ReviewFinding
+ * -------------
+ * One issue the backend reported, as it appears in a review response:
+ * { "file": "src/A.java", "line": 12, "endLine": 14, "severity": "warning",
+ *   "message": "...", "suggestion": "..." }
+ * - Common alternative field names (path, startLine, level, comment, fix) are accepted
+ * - Unknown fields are skipped; a finding without a message is dropped
+ * - Line numbers are 1-based; 0 means the finding is not tied to a line
+ */
+public class ReviewFinding {
+
+    public enum Severity {
+        INFO("ℹ️"), WARNING("⚠️"), ERROR("❌");
+
+        private final String icon;
+
+        Severity(String icon) {
+            this.icon = icon;
+        }
+
+        public String icon() {
+            return icon;
+        }
+
+        static Severity parse(String text) {
+            switch (text == null ? "" : text.toLowerCase(Locale.ROOT)) {
+                case "error":
+                case "critical":
+                case "blocker":
+                case "high":
+                case "major":
+                    return ERROR;
+                case "warning":
+                case "warn":
+                case "medium":
+                case "minor":
+                    return WARNING;
+                default:
+                    return INFO;
+            }
+        }
+    }
+
+    private final String file;
+    private final int startLine;
+    private final int endLine;
+    private final Severity severity;
+    private final String message;
+    private final String suggestion;
+
+    public ReviewFinding(String file, int startLine, int endLine, Severity severity,
+                         String message, String suggestion) {
+        this.file = file;
+        this.startLine = startLine;
+        this.endLine = Math.max(startLine, endLine);
+        this.severity = severity;
+        this.message = message;
+        this.suggestion = suggestion;
+    }
+
+    /** Repository-relative path, or null for commit-wide findings. */
+    public String getFile() {
+        return file;
+    }
+
+    public int getStartLine() {
+        return startLine;
+    }
+
+    public int getEndLine() {
+        return endLine;
+    }
+
+    public Severity getSeverity() {
+        return severity;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    /** Proposed fix, or null. */
+    public String getSuggestion() {
+        return suggestion;
+    }
+
+    /** Console form, e.g. "⚠️ src/A.java:12-14 — message" plus the suggestion on its own line. */
+    public String format() {
+        StringBuilder sb = new StringBuilder(severity.icon()).append(' ');
+        if (file != null) {
+            sb.append(file);
+            if (startLine > 0) {
+                sb.append(':').append(startLine);
+                if (endLine > startLine) {
+                    sb.append('-').append(endLine);
+                }
+            }
+            sb.append(" — ");
+        }
+        sb.append(message);
+        if (suggestion != null && !suggestion.isEmpty()) {
+            sb.append("\n   💡 ").append(suggestion);
+        }
+        return sb.toString();
+    }
+
+    /** Reads one finding object; null if it carries no message. */
+    static ReviewFinding read(JsonReader json) throws IOException {
+        String file = null;
+        int startLine = 0;
+        int endLine = 0;
+        String severity = null;
+        String message = null;
+        String suggestion = null;
+
+        json.beginObject();
+        while (json.hasNext()) {
+            String name = json.nextName();
+            if (json.peek() == JsonReader.Token.NULL) {
+                json.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "file":
+                case "path":
+                    file = json.nextString();
+                    break;
+                case "line":
+                case "startLine":
+                case "start_line":
+                    startLine = (int) json.nextLong();
+                    break;
+                case "endLine":
+                case "end_line":
+                    endLine = (int) json.nextLong();
+                    break;
+                case "severity":
+                case "level":
+                    severity = json.nextString();
+                    break;
+                case "message":
+                case "comment":
+                    message = json.nextString();
+                    break;
+                case "suggestion":
+                case "fix":
+                    suggestion = json.nextString();
+                    break;
+                default:
+                    json.skipValue();
+            }
+        }
+        json.endObject();
+
+        if (message == null || message.isBlank()) {
+            return null;
+        }
+        return new ReviewFinding(file, Math.max(0, startLine), endLine, Severity.parse(severity), message, suggestion);
+    }
+
+    /** Writes the finding in the form read() accepts. */
+    void write(JsonWriter json) throws IOException {
+        json.beginObject()
+            .name("file").value(file)
+            .name("line").value(startLine)
+            .name("endLine").value(endLine)
+            .name("severity").value(severity.name().toLowerCase(Locale.ROOT))
+            .name("message").value(message)
+            .name("suggestion").value(suggestion)
+            .endObject();
+    }
+}
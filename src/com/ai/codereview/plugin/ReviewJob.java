@@ -0,0 +1,49 @@
+package com.ai.codereview.plugin;
+
+import java.io.File;
+
+/**
+ * ReviewJob
+ * ---------
+ * One pending review of a repository: every commit on the current branch
+ * since its review watermark. The commit range is resolved when the job runs.
+ */
+public class ReviewJob {
+
+    private final File gitDir;
+    private final String repoName;
+    private final long sequence;
+    private volatile boolean cancelled;
+
+    public ReviewJob(File gitDir, String repoName, long sequence) {
+        this.gitDir = gitDir;
+        this.repoName = repoName;
+        this.sequence = sequence;
+    }
+
+    /** Same repository as another job (jobs of one repo supersede each other). */
+    public String getRepoKey() {
+        return gitDir.getAbsolutePath();
+    }
+
+    public File getGitDir() {
+        return gitDir;
+    }
+
+    public String getRepoName() {
+        return repoName;
+    }
+
+    /** Higher = newer; newer jobs run first. */
+    public long getSequence() {
+        return sequence;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    void cancel() {
+        cancelled = true;
+    }
+}
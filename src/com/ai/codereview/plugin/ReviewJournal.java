@@ -0,0 +1,163 @@
+package com.ai.codereview.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import org.eclipse.jgit.lib.ObjectId;
+
+/**
+ * ReviewJournal
+ * -------------
+ * Append-only record of commit reviews that could not complete and are worth retrying
+ * (backend down, offline laptop...), kept in the plugin state location.
+ * - One line per commit: git dir, branch, commit SHA; never the diff itself
+ * - Duplicate records of the same commit are ignored
+ * - Replayed by GitChangeListener when the circuit breaker closes again;
+ *   entries already covered by the branch watermark are compacted away
+ */
+public class ReviewJournal {
+
+    private static final String FILE_NAME = "review-journal.log";
+
+    /** A commit that still needs a review; the diff is regenerated from the repository. */
+    public static class Entry {
+        private final File gitDir;
+        private final String branch;
+        private final ObjectId commit;
+
+        Entry(File gitDir, String branch, ObjectId commit) {
+            this.gitDir = gitDir;
+            this.branch = branch;
+            this.commit = commit;
+        }
+
+        public File getGitDir() {
+            return gitDir;
+        }
+
+        public String getBranch() {
+            return branch;
+        }
+
+        public ObjectId getCommit() {
+            return commit;
+        }
+
+        String toLine() {
+            return gitDir.getAbsolutePath() + "\t" + branch + "\t" + commit.name();
+        }
+
+        static Entry parse(String line) {
+            String[] parts = line.split("\t");
+            if (parts.length != 3 || !ObjectId.isId(parts[2])) {
+                return null;
+            }
+            return new Entry(new File(parts[0]), parts[1], ObjectId.fromString(parts[2]));
+        }
+    }
+
+    private static Path file;
+    private static Set<String> lines;
+
+    public static synchronized void record(File gitDir, String branch, ObjectId commit) {
+        if (!ensureLoaded()) {
+            return;
+        }
+        String line = new Entry(canonical(gitDir), branch, commit).toLine();
+        if (!lines.add(line)) {
+            return; // already pending
+        }
+        try {
+            Files.writeString(file, line + "\n", StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            ReviewConsole.show("⚠️ Failed to journal deferred review: " + e.getMessage());
+        }
+    }
+
+    public static synchronized List<Entry> pending() {
+        List<Entry> entries = new ArrayList<>();
+        if (!ensureLoaded()) {
+            return entries;
+        }
+        for (String line : lines) {
+            Entry entry = Entry.parse(line);
+            if (entry != null) {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Keeps only the entries for which stillPending is true and rewrites
+     * the journal once. Called outside the lock for the (slow) checks.
+     */
+    public static void retain(Predicate<Entry> stillPending) {
+        List<String> done = new ArrayList<>();
+        for (Entry entry : pending()) {
+            if (!stillPending.test(entry)) {
+                done.add(entry.toLine());
+            }
+        }
+        if (!done.isEmpty()) {
+            removeAll(done);
+        }
+    }
+
+    private static synchronized void removeAll(List<String> done) {
+        if (!lines.removeAll(done)) {
+            return;
+        }
+        try {
+            Path tmp = file.resolveSibling(FILE_NAME + ".tmp");
+            Files.write(tmp, lines, StandardCharsets.UTF_8);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            ReviewConsole.show("⚠️ Failed to compact review journal: " + e.getMessage());
+        }
+    }
+
+    private static File canonical(File gitDir) {
+        try {
+            return gitDir.getCanonicalFile();
+        } catch (IOException e) {
+            return gitDir.getAbsoluteFile();
+        }
+    }
+
+    private static boolean ensureLoaded() {
+        if (lines != null) {
+            return true;
+        }
+        Activator plugin = Activator.getDefault();
+        if (plugin == null) {
+            return false;
+        }
+
+        file = plugin.getStateLocation().append(FILE_NAME).toFile().toPath();
+        lines = new LinkedHashSet<>();
+        if (Files.exists(file)) {
+            try {
+                for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                    if (Entry.parse(line) != null) {
+                        lines.add(line);
+                    }
+                }
+            } catch (IOException e) {
+                ReviewConsole.show("⚠️ Failed to read review journal: " + e.getMessage());
+            }
+        }
+        return true;
+    }
+}
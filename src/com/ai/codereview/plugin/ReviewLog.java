@@ -0,0 +1,273 @@
+package com.ai.codereview.plugin;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * ReviewLog
+ * ---------
+ * Bounded history of everything shown in the console and the AI panel.
+ * - The newest lines live in a fixed-size ring in memory
+ * - Every finished line is also appended to a segment file in the plugin
+ *   state location, so older lines can still be paged in from disk
+ * - Segments rotate by size; the oldest are deleted past a count limit
+ *
+ * Lines are numbered from 0 for the session. Readers ask for a page
+ * (first line, count) and never copy the whole history; segment files are
+ * read without holding the lock, so writers are not held up by the disk.
+ * Segments are flushed at most once per FLUSH_INTERVAL_MS, and before a read.
+ */
+public class ReviewLog {
+
+    private static final String DIR_NAME = "review-log";
+    private static final String SUFFIX = ".log";
+    private static final long FLUSH_INTERVAL_MS = 1000;
+
+    private static String[] ring;
+    private static long completedLines;             // lines finished so far this session
+    private static final StringBuilder openLine = new StringBuilder();
+
+    private static Path dir;
+    private static final Deque<Segment> segments = new ArrayDeque<>();
+    private static BufferedWriter segmentWriter;
+    private static long lastFlushMillis;
+    private static boolean spillFailed;
+    private static String spillWarning; // shown once the lock is released
+
+    /** Appends text; every '\n' finishes a line, the rest stays open for more fragments. */
+    public static void write(String text) {
+        String warning;
+        synchronized (ReviewLog.class) {
+            append(text);
+            warning = spillWarning;
+            spillWarning = null;
+        }
+        if (warning != null) {
+            ReviewConsole.show(warning); // comes back here as an ordinary line
+        }
+    }
+
+    private static void append(String text) {
+        int start = 0;
+        int nl;
+        while ((nl = text.indexOf('\n', start)) >= 0) {
+            openLine.append(text, start, nl);
+            finishLine();
+            start = nl + 1;
+        }
+        openLine.append(text, start, text.length());
+        long now = System.currentTimeMillis();
+        if (now - lastFlushMillis >= FLUSH_INTERVAL_MS) {
+            flushSegment();
+            lastFlushMillis = now;
+        }
+    }
+
+    /** Lines currently readable: finished ones plus the open line, if any. */
+    public static synchronized long getLineCount() {
+        return completedLines + (openLine.length() > 0 ? 1 : 0);
+    }
+
+    /** Oldest line still available in memory or on disk. */
+    public static synchronized long getFirstLine() {
+        if (!segments.isEmpty()) {
+            return segments.peekFirst().firstLine;
+        }
+        return Math.max(0, completedLines - ring().length);
+    }
+
+    /**
+     * Up to count lines starting at line first. Lines that have been
+     * evicted from both the ring and the disk segments are skipped.
+     */
+    public static List<String> read(long first, int count) {
+        List<String> fromRing = new ArrayList<>();
+        List<Segment> onDisk = new ArrayList<>();
+        long diskFirst;
+        int diskCount = 0;
+
+        synchronized (ReviewLog.class) {
+            long end = Math.min(first + count, getLineCount());
+            long ringStart = Math.max(0, completedLines - ring().length);
+            long line = Math.max(first, getFirstLine());
+            diskFirst = line;
+
+            if (line < ringStart) {
+                flushSegment();
+                segments.forEach(segment -> onDisk.add(segment.snapshot()));
+                diskCount = (int) (Math.min(end, ringStart) - line);
+                line = ringStart;
+            }
+            for (; line < end; line++) {
+                fromRing.add(line < completedLines ? ring()[(int) (line % ring().length)] : openLine.toString());
+            }
+        }
+
+        // Older lines come from disk, outside the lock
+        List<String> page = new ArrayList<>(Math.max(0, Math.min(count, 1024)));
+        if (diskCount > 0) {
+            readFromSegments(onDisk, diskFirst, diskCount, page);
+        }
+        page.addAll(fromRing);
+        return page;
+    }
+
+    public static synchronized void clear() {
+        ring = null;
+        completedLines = 0;
+        openLine.setLength(0);
+        closeSegment();
+        while (!segments.isEmpty()) {
+            segments.pollFirst().file.toFile().delete();
+        }
+    }
+
+    // ----------------------------- RING -----------------------------
+
+    private static String[] ring() {
+        if (ring == null) {
+            ring = new String[PluginSettings.getLogRingLines()];
+        }
+        return ring;
+    }
+
+    private static void finishLine() {
+        String line = openLine.toString().replace("\r", "");
+        openLine.setLength(0);
+        ring()[(int) (completedLines % ring().length)] = line;
+        spill(line);
+        completedLines++;
+    }
+
+    // ----------------------------- SEGMENTS -----------------------------
+
+    private static class Segment {
+        final Path file;
+        final long firstLine;
+        long lineCount;
+        long bytes;
+
+        Segment(Path file, long firstLine) {
+            this.file = file;
+            this.firstLine = firstLine;
+        }
+
+        /** A copy a reader can use while this one keeps growing. */
+        Segment snapshot() {
+            Segment copy = new Segment(file, firstLine);
+            copy.lineCount = lineCount;
+            copy.bytes = bytes;
+            return copy;
+        }
+    }
+
+    private static void spill(String line) {
+        if (spillFailed || !PluginSettings.isLogSpillEnabled() || !ensureDir()) {
+            return;
+        }
+        try {
+            Segment current = segments.peekLast();
+            if (current == null || current.bytes >= PluginSettings.getLogSegmentBytes()) {
+                current = openSegment();
+            }
+            segmentWriter.write(line);
+            segmentWriter.write('\n');
+            current.lineCount++;
+            current.bytes += line.length() + 1;
+        } catch (IOException e) {
+            spillFailed = true; // keep the in-memory ring; don't retry on every line
+            spillWarning = "⚠️ Review log spill disabled: " + e.getMessage();
+        }
+    }
+
+    private static Segment openSegment() throws IOException {
+        closeSegment();
+        Segment segment = new Segment(dir.resolve(String.format("%012d", completedLines) + SUFFIX), completedLines);
+        segmentWriter = Files.newBufferedWriter(segment.file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        segments.addLast(segment);
+
+        while (segments.size() > PluginSettings.getLogMaxSegments()) {
+            segments.pollFirst().file.toFile().delete();
+        }
+        return segment;
+    }
+
+    private static void flushSegment() {
+        if (segmentWriter != null) {
+            try {
+                segmentWriter.flush();
+            } catch (IOException ignored) {}
+        }
+    }
+
+    private static void closeSegment() {
+        if (segmentWriter != null) {
+            try {
+                segmentWriter.close();
+            } catch (IOException ignored) {}
+            segmentWriter = null;
+        }
+    }
+
+    /** Runs without the lock on a snapshot; lines of a segment rotated away meanwhile come back empty. */
+    private static void readFromSegments(List<Segment> segments, long first, int count, List<String> page) {
+        long line = first;
+        for (Segment segment : segments) {
+            long segmentEnd = segment.firstLine + segment.lineCount;
+            if (count <= 0 || line >= segmentEnd) {
+                continue;
+            }
+            try (BufferedReader reader = Files.newBufferedReader(segment.file, StandardCharsets.UTF_8)) {
+                for (long skip = segment.firstLine; skip < line; skip++) {
+                    reader.readLine();
+                }
+                String text;
+                while (count > 0 && line < segmentEnd && (text = reader.readLine()) != null) {
+                    page.add(text);
+                    line++;
+                    count--;
+                }
+            } catch (IOException ignored) {
+                // rotated away since the snapshot, or unreadable
+            }
+            for (; count > 0 && line < segmentEnd; line++, count--) {
+                page.add(""); // keeps the page aligned with the line numbers asked for
+            }
+        }
+    }
+
+    /** Segments from an earlier session are removed; the log starts empty each time. */
+    private static boolean ensureDir() {
+        if (dir != null) {
+            return true;
+        }
+        Activator plugin = Activator.getDefault();
+        if (plugin == null) {
+            return false;
+        }
+        File root = plugin.getStateLocation().append(DIR_NAME).toFile();
+        if (!root.isDirectory() && !root.mkdirs()) {
+            spillFailed = true;
+            return false;
+        }
+        File[] stale = root.listFiles((d, name) -> name.endsWith(SUFFIX));
+        if (stale != null) {
+            for (File f : stale) {
+                f.delete();
+            }
+        }
+        dir = root.toPath();
+        return true;
+    }
+}
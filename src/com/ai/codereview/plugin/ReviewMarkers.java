@@ -0,0 +1,177 @@
+package com.ai.codereview.plugin;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceRuleFactory;
+import org.eclipse.core.resources.IWorkspaceRoot;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.resources.WorkspaceJob;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
+import org.eclipse.core.runtime.jobs.MultiRule;
+
+/**
+ * ReviewMarkers
+ * -------------
+ * Turns review findings into problem markers on the reviewed files.
+ * - Markers belong to a commit; a new review of that commit replaces them
+ * - A file keeps the markers of its latest review only: markers of older
+ *   commits on a reviewed file are removed in the same job, so a clean
+ *   review clears the files it covered
+ * - The replacement is a diff: markers for unchanged findings are kept,
+ *   only stale ones are deleted and only new ones created
+ * - All changes of one review run in a single WorkspaceJob, so the
+ *   workspace broadcasts one resource delta however many findings there are
+ *
+ * Findings without a file, or for files outside the workspace, stay console-only.
+ */
+public class ReviewMarkers {
+
+    /** Declared in plugin.xml as a persistent problem marker. */
+    public static final String MARKER_TYPE = Activator.PLUGIN_ID + ".finding";
+
+    private static final String COMMIT = "commit";
+    private static final String KEY = "findingKey";
+    private static final String SUGGESTION = "suggestion";
+
+    /**
+     * Schedules the marker update for one completely reviewed commit. paths
+     * are the repository-relative files the review covered; those without
+     * findings end up without markers.
+     */
+    public static void update(File workTree, String commit, List<String> paths, List<ReviewFinding> findings) {
+        if (ResourcesPlugin.getPlugin() == null) {
+            return;
+        }
+
+        // Resolve files up front so the job only needs rules for those
+        IWorkspaceRoot root = ResourcesPlugin.getWorkspace().getRoot();
+        Map<IFile, Map<String, ReviewFinding>> wanted = new LinkedHashMap<>();
+        for (String path : paths) {
+            for (IFile resource : root.findFilesForLocationURI(new File(workTree, path).toURI())) {
+                if (resource.isAccessible()) {
+                    wanted.computeIfAbsent(resource, k -> new LinkedHashMap<>());
+                }
+            }
+        }
+        for (ReviewFinding finding : findings) {
+            if (finding.getFile() == null) {
+                continue;
+            }
+            File file = new File(workTree, finding.getFile());
+            for (IFile resource : root.findFilesForLocationURI(file.toURI())) {
+                if (resource.isAccessible()) {
+                    wanted.computeIfAbsent(resource, k -> new LinkedHashMap<>()).putIfAbsent(keyOf(finding), finding);
+                }
+            }
+        }
+
+        if (wanted.isEmpty()) {
+            return; // nothing reviewed is in the workspace
+        }
+        WorkspaceJob job = new WorkspaceJob("AI review markers") {
+            @Override
+            public IStatus runInWorkspace(IProgressMonitor monitor) throws CoreException {
+                apply(root, commit, wanted);
+                return Status.OK_STATUS;
+            }
+        };
+        job.setSystem(true);
+        job.setRule(markerRule(root, wanted));
+        job.schedule();
+    }
+
+    /** Runs inside the workspace operation: every change below ends up in one delta. */
+    private static void apply(IWorkspaceRoot root, String commit,
+                              Map<IFile, Map<String, ReviewFinding>> wanted) throws CoreException {
+        Map<IFile, Map<String, ReviewFinding>> missing = new HashMap<>();
+        wanted.forEach((file, byKey) -> missing.put(file, new LinkedHashMap<>(byKey)));
+
+        int kept = 0;
+        List<IMarker> stale = new ArrayList<>();
+        for (IMarker marker : root.findMarkers(MARKER_TYPE, false, IResource.DEPTH_INFINITE)) {
+            Map<String, ReviewFinding> own = missing.get(marker.getResource());
+            if (!commit.equals(marker.getAttribute(COMMIT, null))) {
+                if (own != null) {
+                    stale.add(marker); // an older review of a file reviewed again
+                }
+                continue;
+            }
+            if (own != null && own.remove(marker.getAttribute(KEY, "")) != null) {
+                kept++;
+            } else {
+                stale.add(marker);
+            }
+        }
+
+        if (!stale.isEmpty()) {
+            root.getWorkspace().deleteMarkers(stale.toArray(new IMarker[0]));
+        }
+        int created = 0;
+        for (Map.Entry<IFile, Map<String, ReviewFinding>> entry : missing.entrySet()) {
+            if (!entry.getKey().isAccessible()) {
+                continue;
+            }
+            for (Map.Entry<String, ReviewFinding> finding : entry.getValue().entrySet()) {
+                entry.getKey().createMarker(MARKER_TYPE, attributes(commit, finding.getKey(), finding.getValue()));
+                created++;
+            }
+        }
+
+        ReviewConsole.show("📌 Review markers for " + commit.substring(0, Math.min(7, commit.length()))
+                + ": " + created + " added, " + kept + " kept, " + stale.size() + " removed");
+    }
+
+    private static Map<String, Object> attributes(String commit, String key, ReviewFinding finding) {
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put(IMarker.MESSAGE, finding.getMessage());
+        attributes.put(IMarker.SEVERITY, severityOf(finding.getSeverity()));
+        attributes.put(IMarker.SOURCE_ID, "AI Review");
+        attributes.put(COMMIT, commit);
+        attributes.put(KEY, key);
+        if (finding.getStartLine() > 0) {
+            attributes.put(IMarker.LINE_NUMBER, finding.getStartLine());
+        }
+        if (finding.getSuggestion() != null) {
+            attributes.put(SUGGESTION, finding.getSuggestion());
+        }
+        return attributes;
+    }
+
+    private static int severityOf(ReviewFinding.Severity severity) {
+        switch (severity) {
+            case ERROR:
+                return IMarker.SEVERITY_ERROR;
+            case WARNING:
+                return IMarker.SEVERITY_WARNING;
+            default:
+                return IMarker.SEVERITY_INFO;
+        }
+    }
+
+    /** What makes two findings the same marker; the file is implied by the resource. */
+    private static String keyOf(ReviewFinding finding) {
+        return finding.getStartLine() + "-" + finding.getEndLine() + "\0"
+                + finding.getSeverity() + "\0" + finding.getMessage();
+    }
+
+    private static ISchedulingRule markerRule(IWorkspaceRoot root, Map<IFile, ?> files) {
+        IResourceRuleFactory rules = root.getWorkspace().getRuleFactory();
+        ISchedulingRule rule = null;
+        for (IFile file : files.keySet()) {
+            rule = MultiRule.combine(rule, rules.markerRule(file));
+        }
+        return rule;
+    }
+}
@@ -0,0 +1,232 @@
+package com.ai.codereview.plugin;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.DiffFormatter;
+import org.eclipse.jgit.lib.AbbreviatedObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+
+/**
+ * ReviewPlanner
+ * -------------
+ * Splits a commit diff into chunks that fit the review size budget and
+ * reviews them in parallel.
+ * - Small files are packed together, in diff order
+ * - A file larger than the budget is split at hunk boundaries
+ * - Chunks are reviewed on virtual threads, at most N at a time,
+ *   or in one batch request when the backend supports it
+ * - Results are merged back in chunk order into one report
+ */
+public class ReviewPlanner {
+
+    public static List<ReviewChunk> plan(Repository repo, DiffCompactor.Result diff, int budget) throws IOException {
+        List<ReviewChunk> chunks = new ArrayList<>();
+        List<DiffEntry> group = new ArrayList<>();
+        long groupBytes = 0;
+
+        try (ObjectReader reader = repo.newObjectReader()) {
+            for (DiffEntry entry : diff.getEntries()) {
+
+                // Cheap upper bound from blob sizes; only format when it might not fit
+                long size = estimateBytes(reader, entry);
+                HunkOutputStream measured = null;
+                if (size > budget - groupBytes) {
+                    measured = measure(repo, diff, entry);
+                    size = measured.getHeaderBytes() + sum(measured.getHunkBytes());
+                }
+
+                if (size <= budget) {
+                    if (groupBytes + size > budget && !group.isEmpty()) {
+                        chunks.add(filesChunk(chunks.size(), repo, diff, group));
+                        group = new ArrayList<>();
+                        groupBytes = 0;
+                    }
+                    group.add(entry);
+                    groupBytes += size;
+                    continue;
+                }
+
+                // Oversized file: flush the pending group, then cut this file at hunk boundaries
+                if (!group.isEmpty()) {
+                    chunks.add(filesChunk(chunks.size(), repo, diff, group));
+                    group = new ArrayList<>();
+                    groupBytes = 0;
+                }
+                addHunkChunks(chunks, repo, diff, entry, measured, budget);
+            }
+        }
+
+        if (!group.isEmpty()) {
+            chunks.add(filesChunk(chunks.size(), repo, diff, group));
+        }
+        return chunks;
+    }
+
+    /**
+     * Reviews every chunk, at most concurrency at a time. Results are indexed
+     * like the chunks. Finishes in about the time of the slowest chunk.
+     * commitId (may be null) is sent along with every chunk.
+     * onFinding (may be null) is called from several threads at once.
+     */
+    public static ReviewResult[] reviewAll(List<ReviewChunk> chunks, String commitId, int concurrency,
+                                     Consumer<ReviewFinding> onFinding) throws InterruptedException {
+        if (chunks.size() > 1 && BackendCapabilities.supports(BackendCapabilities.REVIEW_BATCH)) {
+            // One round trip for all chunks
+            ReviewResult[] results = AIClient.reviewBatch(chunks, Collections.nCopies(chunks.size(), commitId),
+                    onFinding == null ? null : (index, finding) -> onFinding.accept(finding));
+            ReviewConsole.show("✅ Reviewed " + chunks.size() + " chunks in one batch request");
+            return results;
+        }
+
+        Semaphore permits = new Semaphore(concurrency);
+        ReviewResult[] results = new ReviewResult[chunks.size()];
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (ReviewChunk chunk : chunks) {
+                futures.add(executor.submit(() -> {
+                    permits.acquire();
+                    try {
+                        results[chunk.getIndex()] = AIClient.sendReview(chunk, commitId, null, onFinding);
+                        if (Thread.currentThread().isInterrupted()) {
+                            return null;
+                        }
+                        ReviewConsole.show("✅ Reviewed chunk " + (chunk.getIndex() + 1) + "/" + chunks.size()
+                                + " → " + chunk.getLabel());
+                    } finally {
+                        permits.release();
+                    }
+                    return null;
+                }));
+            }
+
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (InterruptedException ie) {
+                    futures.forEach(f -> f.cancel(true));
+                    throw ie;
+                } catch (Exception ignored) {
+                    // AIClient reports its own failures in the result text
+                }
+            }
+        }
+
+        return results;
+    }
+
+    /** One report with every chunk result, in chunk order. */
+    public static String merge(List<ReviewChunk> chunks, ReviewResult[] results) {
+        StringBuilder report = new StringBuilder();
+        for (ReviewChunk chunk : chunks) {
+            report.append("── [").append(chunk.getIndex() + 1).append('/').append(chunks.size()).append("] ")
+                  .append(chunk.getLabel()).append(" ──\n");
+            ReviewResult result = results[chunk.getIndex()];
+            report.append(result != null ? result.getText() : "[AI Review] ❌ Not reviewed").append("\n\n");
+        }
+        return report.toString().trim();
+    }
+
+    // ----------------------------- CHUNK BUILDERS -----------------------------
+
+    private static ReviewChunk filesChunk(int index, Repository repo, DiffCompactor.Result diff,
+                                          List<DiffEntry> files) {
+        List<DiffEntry> entries = List.copyOf(files);
+        String label = entries.size() == 1
+                ? pathOf(entries.get(0))
+                : pathOf(entries.get(0)) + " + " + (entries.size() - 1) + " more";
+
+        return new ReviewChunk(index, label, out -> {
+            try (DiffFormatter df = GitDiffProvider.newFormatter(out, repo)) {
+                diff.format(df, entries);
+            }
+        });
+    }
+
+    private static void addHunkChunks(List<ReviewChunk> chunks, Repository repo, DiffCompactor.Result diff,
+                                      DiffEntry entry, HunkOutputStream measured, int budget) throws IOException {
+        if (measured == null) {
+            measured = measure(repo, diff, entry);
+        }
+        List<Long> hunks = measured.getHunkBytes();
+        long header = measured.getHeaderBytes();
+
+        int from = 0;
+        while (from < hunks.size()) {
+            // At least one hunk per chunk, even if that hunk alone is over budget
+            int to = from + 1;
+            long size = header + hunks.get(from);
+            while (to < hunks.size() && size + hunks.get(to) <= budget) {
+                size += hunks.get(to);
+                to++;
+            }
+            chunks.add(hunkChunk(chunks.size(), repo, diff, entry, from, to));
+            from = to;
+        }
+        if (hunks.isEmpty()) {
+            chunks.add(filesChunk(chunks.size(), repo, diff, List.of(entry)));
+        }
+    }
+
+    private static ReviewChunk hunkChunk(int index, Repository repo, DiffCompactor.Result diff,
+                                         DiffEntry entry, int from, int to) {
+        String label = pathOf(entry) + " (hunks " + (from + 1) + "-" + to + ")";
+        return new ReviewChunk(index, label, out -> {
+            try (DiffFormatter df = GitDiffProvider.newFormatter(HunkOutputStream.slicing(out, from, to), repo)) {
+                diff.format(df, List.of(entry));
+            }
+        });
+    }
+
+    // ----------------------------- SIZING -----------------------------
+
+    private static HunkOutputStream measure(Repository repo, DiffCompactor.Result diff, DiffEntry entry)
+            throws IOException {
+        HunkOutputStream counter = HunkOutputStream.measuring();
+        try (DiffFormatter df = GitDiffProvider.newFormatter(counter, repo)) {
+            diff.format(df, List.of(entry));
+        }
+        return counter;
+    }
+
+    /** Rough upper bound for the formatted size: both blobs, line prefixes and headers. */
+    static long estimateBytes(ObjectReader reader, DiffEntry entry) {
+        long blobs = blobSize(reader, entry.getOldId()) + blobSize(reader, entry.getNewId());
+        return blobs + blobs / 8 + 512;
+    }
+
+    static long blobSize(ObjectReader reader, AbbreviatedObjectId id) {
+        if (id == null || !id.isComplete() || id.toObjectId().equals(ObjectId.zeroId())) {
+            return 0;
+        }
+        try {
+            return reader.getObjectSize(id.toObjectId(), Constants.OBJ_BLOB);
+        } catch (IOException e) {
+            return 0; // e.g. submodule commits are not in this repository
+        }
+    }
+
+    private static long sum(List<Long> sizes) {
+        long total = 0;
+        for (long s : sizes) {
+            total += s;
+        }
+        return total;
+    }
+
+    private static String pathOf(DiffEntry entry) {
+        return entry.getChangeType() == DiffEntry.ChangeType.DELETE ? entry.getOldPath() : entry.getNewPath();
+    }
+}
@@ -0,0 +1,59 @@
+package com.ai.codereview.plugin;
+
+/**
+ * ReviewResult
+ * ------------
+ * Outcome of one review request, next to the text shown for it.
+ * - SUCCESS: 2xx and the response body was read and understood to the end
+ * - RETRYABLE: nothing conclusive came back (connection, timeout, breaker
+ *   open, cancel, 5xx, 408/429, a body cut off mid-stream); worth sending again
+ * - REJECTED: the backend answered and would answer the same again
+ *   (other 4xx, a body that is not valid for its content type)
+ */
+public class ReviewResult {
+
+    public enum Outcome { SUCCESS, RETRYABLE, REJECTED }
+
+    private final Outcome outcome;
+    private final int status;
+    private final String text;
+
+    public ReviewResult(Outcome outcome, int status, String text) {
+        this.outcome = outcome;
+        this.status = status;
+        this.text = text;
+    }
+
+    /** Outcome for a fully read response with this HTTP status. */
+    public static Outcome outcomeOf(int status) {
+        if (status >= 200 && status < 300) {
+            return Outcome.SUCCESS;
+        }
+        if (status >= 500 || status == 408 || status == 429) {
+            return Outcome.RETRYABLE;
+        }
+        return Outcome.REJECTED;
+    }
+
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    public boolean isSuccess() {
+        return outcome == Outcome.SUCCESS;
+    }
+
+    public boolean isRetryable() {
+        return outcome == Outcome.RETRYABLE;
+    }
+
+    /** HTTP status, or 0 if no response arrived. */
+    public int getStatus() {
+        return status;
+    }
+
+    /** The report as shown, e.g. "[AI Review] Response (200): ...". */
+    public String getText() {
+        return text;
+    }
+}
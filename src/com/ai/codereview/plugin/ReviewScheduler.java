@@ -0,0 +1,136 @@
+package com.ai.codereview.plugin;
+
+import java.io.File;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * ReviewScheduler
+ * ---------------
+ * Runs reviews on its own worker thread so Git watchers never block.
+ * - Bounded queue, newest commit first
+ * - A new job for a repository replaces its queued job; a running job of
+ *   that repository stops after the commit it is reviewing (the new job
+ *   resumes from the watermark)
+ * - cancel()/cancelAll() drop work when projects close or the plugin stops
+ */
+public class ReviewScheduler {
+
+    @FunctionalInterface
+    public interface Handler {
+        void review(ReviewJob job) throws Exception;
+    }
+
+    private final Handler handler;
+    private final PriorityQueue<ReviewJob> queue =
+            new PriorityQueue<>(Comparator.comparingLong(ReviewJob::getSequence).reversed());
+
+    private long nextSequence;
+    private ReviewJob running;
+    private Thread worker;
+    private boolean shutdown;
+
+    public ReviewScheduler(Handler handler) {
+        this.handler = handler;
+    }
+
+    /** Queues a catch-up review of a repository; never blocks on the review itself. */
+    public synchronized void submit(File gitDir, String repoName) {
+        if (shutdown) {
+            return;
+        }
+        String repoKey = gitDir.getAbsolutePath();
+
+        queue.removeIf(queued -> queued.getRepoKey().equals(repoKey));
+        if (running != null && running.getRepoKey().equals(repoKey) && !running.isCancelled()) {
+            running.cancel(); // soft: finishes the current commit, then yields to the new job
+            ReviewConsole.show("⏭️ Superseded in-flight review of " + repoName);
+        }
+
+        if (queue.size() >= PluginSettings.getReviewQueueCapacity()) {
+            ReviewJob oldest = queue.stream()
+                    .min(Comparator.comparingLong(ReviewJob::getSequence))
+                    .orElse(null);
+            queue.remove(oldest);
+            ReviewConsole.show("⚠️ Review queue full — dropped pending review of " + oldest.getRepoName());
+        }
+
+        queue.add(new ReviewJob(gitDir, repoName, nextSequence++));
+        ensureWorker();
+        notifyAll();
+    }
+
+    /** Drops queued and running jobs of one repository, e.g. when its project closes. */
+    public synchronized void cancel(File gitDir) {
+        String repoKey = gitDir.getAbsolutePath();
+        queue.removeIf(job -> job.getRepoKey().equals(repoKey));
+        if (running != null && running.getRepoKey().equals(repoKey)) {
+            cancelRunning();
+        }
+    }
+
+    /** Drops queued jobs and cancels the running one. */
+    public synchronized void cancelAll() {
+        queue.clear();
+        cancelRunning();
+    }
+
+    public synchronized void shutdown() {
+        shutdown = true;
+        cancelAll();
+        notifyAll();
+        if (worker != null) {
+            worker.interrupt();
+            worker = null;
+        }
+    }
+
+    private void cancelRunning() {
+        if (running != null) {
+            running.cancel();
+            worker.interrupt(); // aborts the blocking HTTP call
+        }
+    }
+
+    private void ensureWorker() {
+        if (worker == null) {
+            worker = new Thread(this::workLoop, "ai-review-scheduler");
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    private void workLoop() {
+        while (true) {
+            ReviewJob job;
+            synchronized (this) {
+                while (queue.isEmpty() && !shutdown) {
+                    try {
+                        wait();
+                    } catch (InterruptedException ignored) {
+                        // cancellation of a finished job, or shutdown: re-check
+                    }
+                }
+                if (shutdown) {
+                    return;
+                }
+                job = queue.poll();
+                running = job;
+            }
+
+            try {
+                handler.review(job);
+            } catch (InterruptedException e) {
+                ReviewConsole.show("⏹️ Review cancelled: " + job.getRepoName());
+            } catch (Exception e) {
+                ReviewConsole.show("❌ Review failed: " + e.getMessage());
+            } finally {
+                synchronized (this) {
+                    running = null;
+                }
+                // A cancel aimed at this job must not leak into the next one
+                Thread.interrupted();
+            }
+        }
+    }
+}
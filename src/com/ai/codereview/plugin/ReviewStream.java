@@ -0,0 +1,261 @@
+package com.ai.codereview.plugin;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/**
+ * ReviewStream
+ * ------------
+ * Reads a review response body as it arrives and hands out text fragments
+ * and findings.
+ * - text/event-stream: one event per server-sent event
+ * - application/x-ndjson: one event per JSON value, parsed straight off the stream
+ * - application/json: a single event, its review text streamed in pieces
+ * - anything else: raw text, forwarded block by block
+ *
+ * A JSON event contributes its token/delta/content/text field as text and
+ * its "finding" object or "findings" array as ReviewFinding objects; each
+ * finding is also rendered into the text. Events with neither
+ * (e.g. {"done": true}) are control messages and skipped; a JSON body
+ * made only of such events is shown raw.
+ */
+public class ReviewStream {
+
+    private static final int RAW_FALLBACK_LIMIT = 64 * 1024;
+
+    private static final List<String> TEXT_FIELDS = Arrays.asList(
+            "token", "delta", "content", "text", "message", "review", "error", "detail");
+
+    /** Gets the first look at each field of an event; returns false to leave it to readEvent. */
+    @FunctionalInterface
+    interface FieldReader {
+        boolean read(String name, JsonReader json) throws IOException;
+    }
+
+    public static void read(InputStream in, String contentType, Consumer<String> onFragment) throws IOException {
+        read(in, contentType, onFragment, null);
+    }
+
+    /** onFinding may be null when only the text is wanted. */
+    public static void read(InputStream in, String contentType, Consumer<String> onFragment,
+                            Consumer<ReviewFinding> onFinding) throws IOException {
+        String type = contentType == null ? "" : contentType.toLowerCase(Locale.ROOT);
+
+        if (type.startsWith("text/event-stream")) {
+            readEvents(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)), onFragment, onFinding);
+        } else if (type.startsWith("application/x-ndjson") || type.startsWith("application/jsonl")
+                || type.startsWith("application/json")) {
+            readJson(in, onFragment, onFinding);
+        } else {
+            InputStreamReader reader = new InputStreamReader(in, StandardCharsets.UTF_8);
+            char[] buf = new char[4096];
+            int n;
+            while ((n = reader.read(buf)) != -1) {
+                onFragment.accept(new String(buf, 0, n));
+            }
+        }
+    }
+
+    /**
+     * Reads one event object. Fields others (may be null) does not take are
+     * read as text or findings and handed to the consumers, or skipped.
+     */
+    static void readEvent(JsonReader json, Consumer<String> onFragment, Consumer<ReviewFinding> onFinding,
+                          FieldReader others) throws IOException {
+        boolean hasText = false;
+        json.beginObject();
+        while (json.hasNext()) {
+            String name = json.nextName();
+            if (others != null && others.read(name, json)) {
+                continue;
+            }
+            JsonReader.Token token = json.peek();
+
+            if (!hasText && token == JsonReader.Token.STRING && TEXT_FIELDS.contains(name)) {
+                hasText = true;
+                json.nextString(onFragment);
+            } else if (name.equals("finding") && token == JsonReader.Token.BEGIN_OBJECT) {
+                deliver(ReviewFinding.read(json), onFragment, onFinding);
+            } else if (name.equals("findings") && token == JsonReader.Token.BEGIN_ARRAY) {
+                json.beginArray();
+                while (json.hasNext()) {
+                    if (json.peek() == JsonReader.Token.BEGIN_OBJECT) {
+                        deliver(ReviewFinding.read(json), onFragment, onFinding);
+                    } else {
+                        json.skipValue();
+                    }
+                }
+                json.endArray();
+            } else {
+                json.skipValue();
+            }
+        }
+        json.endObject();
+    }
+
+    private static void deliver(ReviewFinding finding, Consumer<String> onFragment,
+                                Consumer<ReviewFinding> onFinding) {
+        if (finding == null) {
+            return;
+        }
+        onFragment.accept("\n" + finding.format() + "\n");
+        if (onFinding != null) {
+            onFinding.accept(finding);
+        }
+    }
+
+    /**
+     * JSON or NDJSON body. The first RAW_FALLBACK_LIMIT bytes are kept while
+     * parsing: a body with no known text field and no findings is shown raw
+     * instead, and so is one that turns out not to be JSON (the
+     * MalformedJsonException is still thrown, so the caller can tell).
+     */
+    private static void readJson(InputStream in, Consumer<String> onFragment,
+                                 Consumer<ReviewFinding> onFinding) throws IOException {
+        RecordingInputStream raw = new RecordingInputStream(in, RAW_FALLBACK_LIMIT);
+        boolean[] understood = {false};
+        Consumer<String> tracking = fragment -> {
+            understood[0] = true;
+            onFragment.accept(fragment);
+        };
+        try {
+            readValues(new JsonReader(raw), tracking, onFinding);
+        } catch (JsonReader.MalformedJsonException e) {
+            if (!understood[0]) {
+                raw.drain();
+                onFragment.accept(raw.text());
+            }
+            throw e;
+        }
+        if (!understood[0]) {
+            onFragment.accept(raw.text());
+        }
+    }
+
+    /** Top-level JSON values one after another (a JSON document or NDJSON). */
+    private static void readValues(JsonReader json, Consumer<String> onFragment,
+                                   Consumer<ReviewFinding> onFinding) throws IOException {
+        while (true) {
+            switch (json.peek()) {
+                case END_DOCUMENT:
+                    return;
+                case BEGIN_OBJECT:
+                    readEvent(json, onFragment, onFinding, null);
+                    break;
+                case STRING:
+                    json.nextString(onFragment);
+                    break;
+                default:
+                    json.skipValue();
+            }
+        }
+    }
+
+    private static void readEvents(BufferedReader reader, Consumer<String> onFragment,
+                                   Consumer<ReviewFinding> onFinding) throws IOException {
+        StringBuilder data = new StringBuilder();
+        String line;
+
+        while ((line = reader.readLine()) != null) {
+            if (line.isEmpty()) {
+                dispatch(data, onFragment, onFinding);
+                continue;
+            }
+            if (line.startsWith(":") || !line.startsWith("data:")) {
+                continue; // comment, event name, id or retry field
+            }
+            String value = line.substring(5);
+            if (value.startsWith(" ")) {
+                value = value.substring(1);
+            }
+            if (data.length() > 0) {
+                data.append('\n');
+            }
+            data.append(value);
+        }
+        dispatch(data, onFragment, onFinding);
+    }
+
+    private static void dispatch(StringBuilder data, Consumer<String> onFragment,
+                                 Consumer<ReviewFinding> onFinding) {
+        if (data.length() == 0) {
+            return;
+        }
+        String payload = data.toString();
+        data.setLength(0);
+
+        if (payload.equals("[DONE]")) {
+            return;
+        }
+        if (!payload.startsWith("{")) {
+            onFragment.accept(payload);
+            return;
+        }
+        try {
+            readEvent(JsonReader.of(payload), onFragment, onFinding, null);
+        } catch (IOException e) {
+            onFragment.accept(payload); // not JSON after all
+        }
+    }
+
+    /** Keeps a copy of the first limit bytes read through it. */
+    private static class RecordingInputStream extends FilterInputStream {
+
+        private final ByteArrayOutputStream copy = new ByteArrayOutputStream();
+        private final int limit;
+        private boolean truncated;
+
+        RecordingInputStream(InputStream in, int limit) {
+            super(in);
+            this.limit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                record(new byte[]{(byte) b}, 0, 1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                record(b, off, n);
+            }
+            return n;
+        }
+
+        /** Reads on until the copy is full or the body ends. */
+        void drain() throws IOException {
+            byte[] buf = new byte[4096];
+            while (copy.size() < limit && read(buf, 0, buf.length) != -1) {
+                // recorded by read()
+            }
+        }
+
+        String text() {
+            String text = copy.toString(StandardCharsets.UTF_8);
+            return truncated ? text + "\n…" : text;
+        }
+
+        private void record(byte[] b, int off, int len) {
+            int room = limit - copy.size();
+            if (len > room) {
+                truncated = true;
+            }
+            copy.write(b, off, Math.min(len, room));
+        }
+    }
+}
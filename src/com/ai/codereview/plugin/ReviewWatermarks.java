@@ -0,0 +1,84 @@
+package com.ai.codereview.plugin;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+import org.eclipse.jgit.lib.ObjectId;
+
+/**
+ * ReviewWatermarks
+ * ----------------
+ * Last reviewed commit per repository and branch, persisted in the plugin
+ * state location so reviews resume where they stopped after a restart.
+ */
+public class ReviewWatermarks {
+
+    private static final String FILE_NAME = "review-watermarks.properties";
+
+    private static File file;
+    private static Properties marks;
+
+    public static synchronized ObjectId get(File gitDir, String branch) {
+        if (!ensureLoaded()) {
+            return null;
+        }
+        String sha = marks.getProperty(keyOf(gitDir, branch));
+        return sha != null && ObjectId.isId(sha) ? ObjectId.fromString(sha) : null;
+    }
+
+    public static synchronized void set(File gitDir, String branch, ObjectId commit) {
+        if (!ensureLoaded()) {
+            return;
+        }
+        marks.setProperty(keyOf(gitDir, branch), commit.name());
+
+        try {
+            File tmp = new File(file.getParentFile(), FILE_NAME + ".tmp");
+            try (OutputStream out = new FileOutputStream(tmp)) {
+                marks.store(out, "Last AI-reviewed commit per repository#branch");
+            }
+            Files.move(tmp.toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            ReviewConsole.show("⚠️ Failed to save review watermark: " + e.getMessage());
+        }
+    }
+
+    private static String keyOf(File gitDir, String branch) {
+        String path;
+        try {
+            path = gitDir.getCanonicalPath();
+        } catch (IOException e) {
+            path = gitDir.getAbsolutePath();
+        }
+        return path + "#" + branch;
+    }
+
+    private static boolean ensureLoaded() {
+        if (marks != null) {
+            return true;
+        }
+        Activator plugin = Activator.getDefault();
+        if (plugin == null) {
+            return false;
+        }
+
+        file = plugin.getStateLocation().append(FILE_NAME).toFile();
+        marks = new Properties();
+        if (file.exists()) {
+            try (InputStream in = new FileInputStream(file)) {
+                marks.load(in);
+            } catch (IOException e) {
+                ReviewConsole.show("⚠️ Failed to read review watermarks: " + e.getMessage());
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,174 @@
+package com.ai.codereview.plugin;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.http.HttpRequest;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * StreamingBody
+ * -------------
+ * Request bodies that are produced while they are being sent.
+ * - The body is written on a virtual thread into fixed-size chunks
+ * - At most a few chunks are queued; the writer blocks until the socket catches up
+ * - No Content-Length is known, so the request goes out chunked
+ *
+ * Each subscription runs the writer again, so a body can be resent.
+ */
+public class StreamingBody {
+
+    @FunctionalInterface
+    public interface Writer {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    private static final int CHUNK_SIZE = 16 * 1024;
+    private static final int MAX_QUEUED_CHUNKS = 4;
+
+    public static HttpRequest.BodyPublisher of(Writer writer) {
+        return HttpRequest.BodyPublishers.fromPublisher(subscriber -> {
+            SubmissionPublisher<ByteBuffer> publisher = new SubmissionPublisher<>(
+                    ForkJoinPool.commonPool(), MAX_QUEUED_CHUNKS);
+            publisher.subscribe(subscriber);
+
+            Thread.ofVirtual().name("ai-review-body").start(() -> {
+                try (ChunkOutputStream out = new ChunkOutputStream(publisher)) {
+                    writer.writeTo(out);
+                } catch (Throwable t) {
+                    publisher.closeExceptionally(t);
+                    return;
+                }
+                publisher.close();
+            });
+        });
+    }
+
+    /** A JSON document, encoded while it is being sent. */
+    public static Writer json(JsonWriter.Body body) {
+        return out -> {
+            JsonWriter json = new JsonWriter(out);
+            body.writeTo(json);
+            json.flush();
+        };
+    }
+
+    public static Writer bytes(byte[] body) {
+        return out -> out.write(body);
+    }
+
+    /** Same body, gzip-compressed while it is written. */
+    public static Writer gzip(Writer writer) {
+        return out -> {
+            GZIPOutputStream gz = new GZIPOutputStream(out, 8 * 1024);
+            writer.writeTo(gz);
+            gz.finish();
+        };
+    }
+
+    /**
+     * Runs the writer into memory as long as it stays within limit bytes.
+     * Returns the complete body, or null as soon as it grows past the limit.
+     */
+    public static byte[] capture(Writer writer, int limit) throws IOException {
+        LimitedBuffer buffer = new LimitedBuffer(limit);
+        try {
+            writer.writeTo(buffer);
+        } catch (LimitExceeded e) {
+            return null;
+        }
+        return buffer.toByteArray();
+    }
+
+    private static class LimitExceeded extends IOException {
+        private static final long serialVersionUID = 1L;
+    }
+
+    private static class LimitedBuffer extends OutputStream {
+
+        private final ByteArrayOutputStream buffer;
+        private final int limit;
+
+        LimitedBuffer(int limit) {
+            this.buffer = new ByteArrayOutputStream(Math.min(limit, 8 * 1024));
+            this.limit = limit;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            ensureWithinLimit(1);
+            buffer.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            ensureWithinLimit(len);
+            buffer.write(b, off, len);
+        }
+
+        byte[] toByteArray() {
+            return buffer.toByteArray();
+        }
+
+        private void ensureWithinLimit(int len) throws LimitExceeded {
+            if (buffer.size() + len > limit) {
+                throw new LimitExceeded();
+            }
+        }
+    }
+
+    /** Cuts the written bytes into chunks and hands them to the HTTP client. */
+    private static class ChunkOutputStream extends OutputStream {
+
+        private final SubmissionPublisher<ByteBuffer> publisher;
+        private byte[] chunk = new byte[CHUNK_SIZE];
+        private int count;
+
+        ChunkOutputStream(SubmissionPublisher<ByteBuffer> publisher) {
+            this.publisher = publisher;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (count == chunk.length) {
+                publish();
+            }
+            chunk[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (count == chunk.length) {
+                    publish();
+                }
+                int n = Math.min(len, chunk.length - count);
+                System.arraycopy(b, off, chunk, count, n);
+                count += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (count > 0) {
+                publish();
+            }
+        }
+
+        private void publish() throws IOException {
+            if (!publisher.hasSubscribers()) {
+                throw new IOException("Request body cancelled");
+            }
+            // Blocks while MAX_QUEUED_CHUNKS are still waiting to be sent
+            publisher.submit(ByteBuffer.wrap(chunk, 0, count));
+            chunk = new byte[CHUNK_SIZE];
+            count = 0;
+        }
+    }
+}
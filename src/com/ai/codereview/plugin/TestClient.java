@@ -1,34 +1,38 @@
 package com.ai.codereview.plugin;
-import java.io.*;
-import java.net.*;
-import java.nio.charset.StandardCharsets;
+import java.io.InputStream;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.stream.Collectors;
 
 public class TestClient {
 
-    // MUST match your backend API
-    private static final String BASE = "http://127.0.0.1:5142/api/test/";
+    // Set to true while debugging to print more info to console
+    private static final boolean DEBUG = false;
 
     /**
      * Generate test cases from Git diff SOURCE CODE.
      * Backend expects:
      * POST /api/test/generate
      * { "code": "..." }
+     * or, when it advertises test.raw-diff, the diff itself as text/x-diff
      */
-    public static String generateTestCaseFromDiff(String diff) {
-
-        String escaped = escape(diff);
-        String json = "{\"code\":\"" + escaped + "\"}";
-
-        System.out.println("======= RAW DIFF =======");
-        System.out.println(diff);
-
-        System.out.println("======= ESCAPED DIFF =======");
-        System.out.println(escaped);
-
-        System.out.println("======= FINAL JSON SENT =======");
-        System.out.println(json);
-
-        return postJson("generate", json);
+    public static String generateTestCaseFromDiff(DiffSource diff) {
+        if (BackendCapabilities.supports(BackendCapabilities.TEST_RAW_DIFF)) {
+            try {
+                HttpResponse<InputStream> response = post(BackendEndpoint.TEST_GENERATE,
+                        "text/x-diff; charset=UTF-8", diff::writeTo);
+                if (response.statusCode() != 415) {
+                    return readLines(response);
+                }
+                response.body().close();
+                BackendCapabilities.markUnsupported(BackendCapabilities.TEST_RAW_DIFF);
+            } catch (Exception e) {
+                e.printStackTrace();
+                return null;
+            }
+        }
+        return postJson(BackendEndpoint.TEST_GENERATE,
+                StreamingBody.json(json -> json.beginObject().name("code").value(diff).endObject()));
     }
 
     /**
@@ -45,105 +49,75 @@ public class TestClient {
      * { "tests": "..." }
      */
     public static boolean validateTestCase(String testCase) {
-
-        String json = "{\"tests\":\"" + escape(testCase) + "\"}";
-
-        String res = postJson("validate", json);
-
-        if (res == null) return false;
-
-        System.out.println("VALIDATE RESPONSE:");
-        System.out.println(res);
-
-        // Backend returns:
-        // { "result": "✅ Follows" }
-        // or
-        // { "result": "❌ Does Not Follow - reason..." }
-
-        if (res.contains("✅")) return true;   // validation success
-        return false;                         // validation failed
+        return validate(testCase).isPassed();
     }
 
-
     /**
-     * Shared POST request handler
+     * Same as validateTestCase, with the backend's verdict and reason.
+     * Backend returns:
+     * { "result": "✅ Follows" }
+     * or
+     * { "result": "❌ Does Not Follow - reason..." }
      */
-    private static String postJson(String endpoint, String body) {
+    public static ValidationResult validate(String testCase) {
 
-        HttpURLConnection conn = null;
+        String tests = testCase == null ? "" : testCase;
 
         try {
-            URL url = new URL(BASE + endpoint);
-            conn = (HttpURLConnection) url.openConnection();
-
-            conn.setRequestMethod("POST");
-            conn.setDoOutput(true);
+            HttpResponse<InputStream> response = post(BackendEndpoint.TEST_VALIDATE, "application/json",
+                    StreamingBody.json(json -> json.beginObject().name("tests").value(tests).endObject()));
 
-            conn.setRequestProperty("Content-Type", "application/json");
-            conn.setRequestProperty("Accept", "application/json");
+            try (InputStream body = response.body()) {
+                ValidationResult result = ValidationResult.read(body);
 
-            // Include auth token from Login
-            String token = AuthManager.getToken();
-            if (token != null) {
-                conn.setRequestProperty("Authorization", "Bearer " + token);
-            }
+                if (DEBUG) {
+                    System.out.println("VALIDATE RESPONSE (" + response.statusCode() + "): " + result.getMessage());
+                }
 
-            // Send JSON body
-            try (OutputStream os = conn.getOutputStream()) {
-                os.write(body.getBytes(StandardCharsets.UTF_8));
+                if (response.statusCode() != 200) {
+                    return new ValidationResult(false, result.getMessage());
+                }
+                return result;
             }
 
-            int status = conn.getResponseCode();
-
-            // Read API response
-            InputStream is = status == 200 ? conn.getInputStream() : conn.getErrorStream();
-            if (is == null) return null;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return new ValidationResult(false, "❌ Validation request failed - " + e.getMessage());
+        }
+    }
 
-            BufferedReader br = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8));
-            StringBuilder sb = new StringBuilder();
-            String line;
 
-            while ((line = br.readLine()) != null) {
-                sb.append(line);
-            }
+    /**
+     * Shared POST request handler
+     */
+    private static String postJson(BackendEndpoint endpoint, StreamingBody.Writer body) {
 
-            br.close();
-            return sb.toString();
+        try {
+            return readLines(post(endpoint, "application/json", body));
 
         } catch (Exception e) {
             e.printStackTrace();
             return null;
-
-        } finally {
-            if (conn != null) conn.disconnect();
         }
     }
 
-    /**
-     * Escape text for JSON safety
-     */
-    private static String escape(String s) {
-        if (s == null) return "";
-        StringBuilder sb = new StringBuilder();
-
-        for (char c : s.toCharArray()) {
-            switch (c) {
-                case '\\': sb.append("\\\\"); break;
-                case '"': sb.append("\\\""); break;
-                case '\b': sb.append("\\b"); break;
-                case '\f': sb.append("\\f"); break;
-                case '\n': sb.append("\\n"); break;
-                case '\r': sb.append("\\r"); break;
-                case '\t': sb.append("\\t"); break;
-                default:
-                    if (c < 0x20) {
-                        sb.append(String.format("\\u%04x", (int)c));
-                    } else {
-                        sb.append(c);
-                    }
-            }
+    private static HttpResponse<InputStream> post(BackendEndpoint endpoint, String contentType,
+                                                  StreamingBody.Writer body) throws Exception {
+        HttpRequest.Builder request = BackendTransport.newRequest(endpoint)
+                .header("Content-Type", contentType);
+
+        // Include auth token from Login
+        String token = AuthManager.getToken();
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
         }
-        return sb.toString();
+
+        return BackendTransport.post(endpoint, request, body);
+    }
+
+    // Read API response
+    private static String readLines(HttpResponse<InputStream> response) throws Exception {
+        return BackendTransport.readBody(response).lines().collect(Collectors.joining());
     }
 
 }
@@ -0,0 +1,74 @@
+package com.ai.codereview.plugin;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * ValidationResult
+ * ----------------
+ * Outcome of POST /api/test/validate. The backend answers
+ * { "result": "✅ Follows" } or { "result": "❌ Does Not Follow - reason..." };
+ * an explicit "valid"/"passed" boolean wins over the text when present.
+ */
+public class ValidationResult {
+
+    private final boolean passed;
+    private final String message;
+
+    public ValidationResult(boolean passed, String message) {
+        this.passed = passed;
+        this.message = message;
+    }
+
+    public boolean isPassed() {
+        return passed;
+    }
+
+    /** The backend's verdict text, e.g. "❌ Does Not Follow - reason...". */
+    public String getMessage() {
+        return message;
+    }
+
+    /** Why validation failed, without the verdict prefix; empty if none was given. */
+    public String getReason() {
+        int dash = message.indexOf(" - ");
+        return dash < 0 ? "" : message.substring(dash + 3).trim();
+    }
+
+    /** Parses the response body as it is read; an unreadable body counts as a failure. */
+    static ValidationResult read(InputStream in) {
+        Boolean passed = null;
+        String message = "";
+        try {
+            JsonReader json = new JsonReader(in);
+            json.beginObject();
+            while (json.hasNext()) {
+                String name = json.nextName();
+                if (json.peek() == JsonReader.Token.NULL) {
+                    json.nextNull();
+                    continue;
+                }
+                switch (name) {
+                    case "result":
+                    case "message":
+                        message = json.nextString();
+                        break;
+                    case "valid":
+                    case "passed":
+                        passed = json.nextBoolean();
+                        break;
+                    default:
+                        json.skipValue();
+                }
+            }
+            json.endObject();
+        } catch (IOException e) {
+            return new ValidationResult(false, "❌ Unreadable validation response - " + e.getMessage());
+        }
+
+        if (passed == null) {
+            passed = message.trim().startsWith("✅");
+        }
+        return new ValidationResult(passed, message);
+    }
+}